@@ -0,0 +1,44 @@
+package edu.metro.grocerystore.DTO;
+
+/**
+ * DTO for a single type-ahead suggestion returned by the autocomplete endpoint
+ */
+public class AutocompleteSuggestion {
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_CATEGORY = "category";
+    
+    private final String type;
+    private final Integer id;
+    private final String label;
+    private final String url;
+    private final long score;
+    
+    public AutocompleteSuggestion(String type, Integer id, String label, String url, long score) {
+        this.type = type;
+        this.id = id;
+        this.label = label;
+        this.url = url;
+        this.score = score;
+    }
+    
+    // Getters
+    public String getType() {
+        return type;
+    }
+    
+    public Integer getId() {
+        return id;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public long getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.metro.grocerystore.DTO;
+
+/**
+ * DTO for one line of a bulk add-to-cart request: a product and how many to add
+ */
+public class CartLine {
+    private Integer productId;
+    private Integer quantity;
+
+    public CartLine() {
+    }
+
+    public CartLine(Integer productId, Integer quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
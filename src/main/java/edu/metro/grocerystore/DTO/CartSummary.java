@@ -0,0 +1,55 @@
+package edu.metro.grocerystore.DTO;
+
+import edu.metro.grocerystore.model.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO for everything a page shows about a cart: its items (with products loaded),
+ * the total quantity and the total price, computed together in one pass
+ */
+public class CartSummary {
+    private static final CartSummary EMPTY = new CartSummary(List.of(), 0, BigDecimal.ZERO);
+
+    private final List<CartItem> items;
+    private final int itemCount;
+    private final BigDecimal total;
+
+    public CartSummary(List<CartItem> items, int itemCount, BigDecimal total) {
+        this.items = items;
+        this.itemCount = itemCount;
+        this.total = total;
+    }
+
+    public static CartSummary empty() {
+        return EMPTY;
+    }
+
+    public static CartSummary of(List<CartItem> items) {
+        int itemCount = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            itemCount += item.getQuantity();
+            total = total.add(item.getSubTotal());
+        }
+        return new CartSummary(List.copyOf(items), itemCount, total);
+    }
+
+    // Getters
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,31 @@
+package edu.metro.grocerystore.DTO;
+
+import java.util.List;
+
+/**
+ * DTO for one category section of the home page: the category and a few of its products
+ */
+public class CategoryHighlight {
+    private final Integer categoryId;
+    private final String categoryName;
+    private final List<ProductCard> products;
+    
+    public CategoryHighlight(Integer categoryId, String categoryName, List<ProductCard> products) {
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.products = List.copyOf(products);
+    }
+    
+    // Getters
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+    
+    public String getCategoryName() {
+        return categoryName;
+    }
+    
+    public List<ProductCard> getProducts() {
+        return products;
+    }
+}
@@ -0,0 +1,49 @@
+package edu.metro.grocerystore.DTO;
+
+import edu.metro.grocerystore.model.ProductCategory;
+
+/**
+ * Immutable copy of a product category for navigation, filters and forms, so the
+ * cached category list can be shared between requests without sharing entities
+ */
+public class CategorySummary {
+    private final Integer categoryId;
+    private final String categoryName;
+    private final String categoryImageUrl;
+    private final String categoryIconSvg;
+    private final String categoryDescription;
+    
+    public CategorySummary(ProductCategory category) {
+        this.categoryId = category.getCategoryId();
+        this.categoryName = category.getCategoryName();
+        this.categoryImageUrl = category.getCategoryImageUrl();
+        this.categoryIconSvg = category.getCategoryIconSvg();
+        this.categoryDescription = category.getCategoryDescription();
+    }
+    
+    // Getters
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+    
+    public String getCategoryName() {
+        return categoryName;
+    }
+    
+    public String getCategoryImageUrl() {
+        return categoryImageUrl;
+    }
+    
+    public String getCategoryIconSvg() {
+        return categoryIconSvg;
+    }
+    
+    public String getCategoryDescription() {
+        return categoryDescription;
+    }
+    
+    // Convenience method for templates, like ProductCategory.getName()
+    public String getName() {
+        return categoryName;
+    }
+}
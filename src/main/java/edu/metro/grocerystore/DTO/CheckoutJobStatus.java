@@ -0,0 +1,81 @@
+package edu.metro.grocerystore.DTO;
+
+import java.time.Instant;
+
+/**
+ * DTO tracking one asynchronous checkout from submission to its final result.
+ * Updated by the checkout worker and read by the status polling endpoint.
+ */
+public class CheckoutJobStatus {
+
+    public enum State { QUEUED, PROCESSING, COMPLETED, FAILED }
+
+    private final String jobId;
+    private final Integer userId;
+    private final Instant submittedAt;
+    private volatile State state = State.QUEUED;
+    private volatile Integer orderId;
+    private volatile String message;
+    private volatile Instant finishedAt;
+
+    public CheckoutJobStatus(String jobId, Integer userId) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.submittedAt = Instant.now();
+    }
+
+    public void markProcessing() {
+        this.state = State.PROCESSING;
+    }
+
+    public void markCompleted(Integer orderId) {
+        this.orderId = orderId;
+        this.finishedAt = Instant.now();
+        this.state = State.COMPLETED;
+    }
+
+    public void markFailed(String message) {
+        this.message = message;
+        this.finishedAt = Instant.now();
+        this.state = State.FAILED;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    // Getters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return ID of the created order, once completed
+     */
+    public Integer getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * @return reason for a failed checkout
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
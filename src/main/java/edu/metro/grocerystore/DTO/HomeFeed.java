@@ -0,0 +1,42 @@
+package edu.metro.grocerystore.DTO;
+
+import java.util.List;
+
+/**
+ * DTO for the home page product sections. Built in the background and shared by
+ * every request until the next rebuild, so it is immutable.
+ */
+public class HomeFeed {
+    private final List<ProductCard> featured;
+    private final List<CategoryHighlight> categoryHighlights;
+    private final List<ProductCard> newArrivals;
+    private final long builtAt;
+    
+    public HomeFeed(List<ProductCard> featured, List<CategoryHighlight> categoryHighlights,
+                    List<ProductCard> newArrivals, long builtAt) {
+        this.featured = List.copyOf(featured);
+        this.categoryHighlights = List.copyOf(categoryHighlights);
+        this.newArrivals = List.copyOf(newArrivals);
+        this.builtAt = builtAt;
+    }
+    
+    // Getters
+    public List<ProductCard> getFeatured() {
+        return featured;
+    }
+    
+    public List<CategoryHighlight> getCategoryHighlights() {
+        return categoryHighlights;
+    }
+    
+    public List<ProductCard> getNewArrivals() {
+        return newArrivals;
+    }
+    
+    /**
+     * @return when the feed was built, in epoch milliseconds
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+}
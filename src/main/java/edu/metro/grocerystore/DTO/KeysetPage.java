@@ -0,0 +1,34 @@
+package edu.metro.grocerystore.DTO;
+
+import java.util.List;
+
+/**
+ * DTO for one page of a keyset (seek) paginated listing.
+ * Instead of a page number and total count it carries an opaque cursor
+ * pointing just past the last row, which is passed back to fetch the next page.
+ */
+public class KeysetPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+    
+    public KeysetPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters
+    public List<T> getContent() {
+        return content;
+    }
+    
+    /**
+     * @return cursor for the following page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
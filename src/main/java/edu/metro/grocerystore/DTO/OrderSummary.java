@@ -0,0 +1,67 @@
+package edu.metro.grocerystore.DTO;
+
+import edu.metro.grocerystore.model.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * DTO for one row of the order list: the order header, customer name and item count,
+ * read by a single projection query instead of loading orders, users and items
+ */
+public class OrderSummary {
+    private final Integer orderId;
+    private final String orderNumber;
+    private final OrderStatus orderStatus;
+    private final String customerName;
+    private final String storeLocation;
+    private final Instant createdAt;
+    private final BigDecimal totalAmount;
+    private final int totalItems;
+
+    public OrderSummary(Integer orderId, String orderNumber, OrderStatus orderStatus,
+                        String firstName, String lastName, String storeLocation,
+                        Instant createdAt, BigDecimal totalAmount, Long totalItems) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.orderStatus = orderStatus;
+        this.customerName = firstName + " " + lastName;
+        this.storeLocation = storeLocation;
+        this.createdAt = createdAt;
+        this.totalAmount = totalAmount;
+        this.totalItems = totalItems == null ? 0 : totalItems.intValue();
+    }
+
+    // Getters
+    public Integer getOrderId() {
+        return orderId;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getStoreLocation() {
+        return storeLocation;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+}
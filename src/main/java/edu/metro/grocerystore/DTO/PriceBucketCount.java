@@ -0,0 +1,40 @@
+package edu.metro.grocerystore.DTO;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for one price-range facet: its bounds and how many matching products fall in it
+ */
+public class PriceBucketCount {
+    private final String label;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final int count;
+    
+    public PriceBucketCount(String label, BigDecimal minPrice, BigDecimal maxPrice, int count) {
+        this.label = label;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.count = count;
+    }
+    
+    // Getters
+    public String getLabel() {
+        return label;
+    }
+    
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+    
+    /**
+     * @return exclusive upper bound, passed as priceBelow, or null for the open-ended top bucket
+     */
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+}
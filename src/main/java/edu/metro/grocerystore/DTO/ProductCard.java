@@ -0,0 +1,74 @@
+package edu.metro.grocerystore.DTO;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for one product card on the listing pages: only the columns a card shows, with the
+ * category name joined in, read by a projection query instead of loading Product entities
+ */
+public class ProductCard {
+    private final Integer productId;
+    private final String name;
+    private final BigDecimal price;
+    private final String imageUrl;
+    private final String categoryName;
+    private final int quantity;
+    private final boolean lowStock;
+    private final boolean active;
+
+    public ProductCard(Integer productId, String name, BigDecimal price, String imageUrl, String categoryName,
+                       Integer quantity, Integer reorderLevel, Boolean isActive) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.categoryName = categoryName;
+        this.quantity = quantity == null ? 0 : quantity;
+        this.lowStock = quantity != null && reorderLevel != null && quantity <= reorderLevel;
+        this.active = Boolean.TRUE.equals(isActive);
+    }
+
+    // Getters
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Boolean getIsActive() {
+        return active;
+    }
+
+    public boolean isInStock() {
+        return quantity > 0;
+    }
+
+    public boolean isLowStock() {
+        return lowStock;
+    }
+
+    /**
+     * @return true if the product is active and in stock
+     */
+    public boolean isAvailable() {
+        return active && isInStock();
+    }
+}
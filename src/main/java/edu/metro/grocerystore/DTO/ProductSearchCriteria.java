@@ -1,15 +1,23 @@
 package edu.metro.grocerystore.DTO;
 
 import java.math.BigDecimal;
+import java.util.Set;
 
 /**
- * DTO for product search criteria to reduce method parameter count
+ * DTO for product search criteria to reduce method parameter count.
+ * The price range includes both minPrice and maxPrice. priceBelow is an exclusive upper bound,
+ * set by the price facet links so that adjacent facet ranges do not overlap.
  */
 public class ProductSearchCriteria {
+    /** Fields product searches can be sorted by, whether answered by the search index or the database */
+    public static final Set<String> SORT_FIELDS = Set.of("name", "price", "quantity", "productId");
+    
     private String searchTerm;
     private Integer categoryId;
     private BigDecimal minPrice;
     private BigDecimal maxPrice;
+    private BigDecimal priceBelow;
+    private Boolean inStock;
     private int page;
     private int size;
     private String sortBy;
@@ -59,6 +67,30 @@ public class ProductSearchCriteria {
         this.minPrice = minPrice;
     }
     
+    /**
+     * Whether a price is at least minPrice, at most maxPrice and below priceBelow; any bound
+     * may be null for none. The price filters of the search index and ProductRepository follow
+     * the same rule.
+     */
+    public static boolean isInPriceRange(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice,
+                                         BigDecimal priceBelow) {
+        return price != null
+                && (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0)
+                && (priceBelow == null || price.compareTo(priceBelow) < 0);
+    }
+    
+    /**
+     * @return sortBy, if it is one of SORT_FIELDS
+     * @throws IllegalArgumentException if products cannot be sorted by it
+     */
+    public static String requireSortField(String sortBy) {
+        if (sortBy == null || !SORT_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Cannot sort products by " + sortBy);
+        }
+        return sortBy;
+    }
+    
     public BigDecimal getMaxPrice() {
         return maxPrice;
     }
@@ -67,6 +99,22 @@ public class ProductSearchCriteria {
         this.maxPrice = maxPrice;
     }
     
+    public BigDecimal getPriceBelow() {
+        return priceBelow;
+    }
+    
+    public void setPriceBelow(BigDecimal priceBelow) {
+        this.priceBelow = priceBelow;
+    }
+    
+    public Boolean getInStock() {
+        return inStock;
+    }
+    
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+    
     public int getPage() {
         return page;
     }
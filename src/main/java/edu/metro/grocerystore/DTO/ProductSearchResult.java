@@ -0,0 +1,46 @@
+package edu.metro.grocerystore.DTO;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for a product search page together with its facet counts.
+ * Each facet is counted with every other active filter applied, but not its own,
+ * so the counts show what selecting that facet value would return.
+ */
+public class ProductSearchResult {
+    private final Page<ProductCard> products;
+    private final Map<Integer, Integer> categoryCounts;
+    private final List<PriceBucketCount> priceBuckets;
+    private final int inStockCount;
+    
+    public ProductSearchResult(Page<ProductCard> products, Map<Integer, Integer> categoryCounts,
+                               List<PriceBucketCount> priceBuckets, int inStockCount) {
+        this.products = products;
+        this.categoryCounts = categoryCounts;
+        this.priceBuckets = priceBuckets;
+        this.inStockCount = inStockCount;
+    }
+    
+    // Getters
+    public Page<ProductCard> getProducts() {
+        return products;
+    }
+    
+    /**
+     * @return number of matching products per category ID
+     */
+    public Map<Integer, Integer> getCategoryCounts() {
+        return categoryCounts;
+    }
+    
+    public List<PriceBucketCount> getPriceBuckets() {
+        return priceBuckets;
+    }
+    
+    public int getInStockCount() {
+        return inStockCount;
+    }
+}
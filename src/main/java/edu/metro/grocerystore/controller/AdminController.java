@@ -1,18 +1,30 @@
 package edu.metro.grocerystore.controller;
 
 import edu.metro.grocerystore.model.User;
+import edu.metro.grocerystore.service.AbandonedCartReaper;
+import edu.metro.grocerystore.service.AsyncCheckoutService;
+import edu.metro.grocerystore.service.EntityCacheRegions;
+import edu.metro.grocerystore.service.HomeFeedService;
+import edu.metro.grocerystore.service.IdempotencyKeyStore;
+import edu.metro.grocerystore.service.ProductService;
+import edu.metro.grocerystore.service.StockReservationService;
 import edu.metro.grocerystore.service.UserService;
+import edu.metro.grocerystore.service.WriteBehindCartStore;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -33,10 +45,33 @@ public class AdminController extends BaseController {
     private static final String ADMIN_ROLE = "admin";
     
     private final UserService userService;
+    private final ProductService productService;
+    private final StockReservationService stockReservationService;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final AsyncCheckoutService asyncCheckoutService;
+    private final WriteBehindCartStore cartStore;
+    private final AbandonedCartReaper abandonedCartReaper;
+    private final EntityCacheRegions entityCacheRegions;
+    private final HomeFeedService homeFeedService;
     
     @Autowired
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService, ProductService productService,
+                           StockReservationService stockReservationService,
+                           IdempotencyKeyStore idempotencyKeyStore,
+                           AsyncCheckoutService asyncCheckoutService,
+                           WriteBehindCartStore cartStore,
+                           AbandonedCartReaper abandonedCartReaper,
+                           EntityCacheRegions entityCacheRegions,
+                           HomeFeedService homeFeedService) {
         this.userService = userService;
+        this.productService = productService;
+        this.stockReservationService = stockReservationService;
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.asyncCheckoutService = asyncCheckoutService;
+        this.cartStore = cartStore;
+        this.abandonedCartReaper = abandonedCartReaper;
+        this.entityCacheRegions = entityCacheRegions;
+        this.homeFeedService = homeFeedService;
     }
     
     /**
@@ -68,6 +103,97 @@ public class AdminController extends BaseController {
         }
     }
     
+    /**
+     * In-process cache statistics (JSON, admin only)
+     */
+    @GetMapping("/api/cache-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> cacheStats(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        if (loggedInUser == null || !loggedInUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("categories", productCategoryService.getCacheStats());
+        stats.put("cartCounts", cartService.getCountCacheStats());
+        stats.put("guestCarts", cartService.getGuestCartStats());
+        stats.put("idempotencyKeys", idempotencyKeyStore.getStats());
+        stats.put("entities", entityCacheRegions.getStats());
+        stats.put("homeFeed", homeFeedService.getStats());
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * Optimistic lock retry counts for stock changes (Admin only)
+     */
+    @GetMapping("/api/stock-retry-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> stockRetryStats(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        if (loggedInUser == null || !loggedInUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(productService.getStockRetryStats());
+    }
+    
+    /**
+     * Asynchronous checkout queue depth and outcomes (Admin only)
+     */
+    @GetMapping("/api/checkout-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> checkoutStats(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        if (loggedInUser == null || !loggedInUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(asyncCheckoutService.getStats());
+    }
+    
+    /**
+     * Write-behind cart store size and flush counters (Admin only)
+     */
+    @GetMapping("/api/cart-store-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> cartStoreStats(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        if (loggedInUser == null || !loggedInUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(cartStore.getStats());
+    }
+    
+    /**
+     * Abandoned cart cleanup progress (Admin only)
+     */
+    @GetMapping("/api/cart-reaper-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> cartReaperStats(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        if (loggedInUser == null || !loggedInUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(abandonedCartReaper.getStats());
+    }
+    
+    /**
+     * Active checkout stock holds (Admin only)
+     */
+    @GetMapping("/api/reservation-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> reservationStats(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        if (loggedInUser == null || !loggedInUser.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(stockReservationService.getStats());
+    }
+    
     /**
      * Admin dashboard home page
      */
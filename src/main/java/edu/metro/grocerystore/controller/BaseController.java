@@ -1,6 +1,6 @@
 package edu.metro.grocerystore.controller;
 
-import edu.metro.grocerystore.model.ProductCategory;
+import edu.metro.grocerystore.DTO.CategorySummary;
 import edu.metro.grocerystore.model.User;
 import edu.metro.grocerystore.service.CartService;
 import edu.metro.grocerystore.service.ProductCategoryService;
@@ -30,7 +30,7 @@ public abstract class BaseController {
      * This method is automatically called for all controller methods
      */
     @ModelAttribute("productCategories")
-    public List<ProductCategory> addProductCategories() {
+    public List<CategorySummary> addProductCategories() {
         return productCategoryService.getAllCategories();
     }
     
@@ -42,7 +42,7 @@ public abstract class BaseController {
     public int addCartItemCount(HttpSession session) {
         User loggedInUser = (User) session.getAttribute("loggedInUser");
         if (loggedInUser == null || loggedInUser.isGuest()) {
-            return 0;
+            return cartService.getGuestCartItemCount(session.getId());
         }
         return cartService.getCartItemCount(loggedInUser);
     }
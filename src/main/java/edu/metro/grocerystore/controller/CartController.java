@@ -1,23 +1,26 @@
 package edu.metro.grocerystore.controller;
 
-import edu.metro.grocerystore.model.Cart;
+import edu.metro.grocerystore.DTO.CartLine;
+import edu.metro.grocerystore.DTO.CartSummary;
 import edu.metro.grocerystore.model.User;
 import edu.metro.grocerystore.service.CartService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/cart")
 public class CartController extends BaseController {
     
     private static final String LOGGED_IN_USER_ATTR = "loggedInUser";
-    private static final String REDIRECT_LOGIN = "redirect:/login";
     private static final String REDIRECT_CART = "redirect:/cart";
     
     private final CartService cartService;
@@ -28,24 +31,21 @@ public class CartController extends BaseController {
     }
     
     /**
-     * Display cart page
+     * Display cart page (guests see their in-memory cart)
      */
     @GetMapping
-    public String viewCart(HttpSession session, Model model, RedirectAttributes redirectAttributes) {
+    public String viewCart(HttpSession session, Model model) {
         User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
         
-        if (loggedInUser == null || loggedInUser.isGuest()) {
-            redirectAttributes.addFlashAttribute("error", "Please log in to view your cart.");
-            return REDIRECT_LOGIN;
-        }
-        
-        Cart cart = cartService.getOrCreateCart(loggedInUser);
+        CartSummary cart = isGuest(loggedInUser)
+                ? cartService.getGuestCartSummary(session.getId())
+                : cartService.getCartSummary(loggedInUser);
         
         // BaseController automatically adds user to model
         model.addAttribute("cart", cart);
-        model.addAttribute("cartItems", cart.getCartItems());
+        model.addAttribute("cartItems", cart.getItems());
         model.addAttribute("cartTotal", cart.getTotal());
-        model.addAttribute("cartItemCount", cart.getTotalItems());
+        model.addAttribute("cartItemCount", cart.getItemCount());
         
         return "cart";
     }
@@ -63,13 +63,12 @@ public class CartController extends BaseController {
         
         User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
         
-        if (loggedInUser == null || loggedInUser.isGuest()) {
-            redirectAttributes.addFlashAttribute("error", "Please log in to add items to your cart.");
-            return REDIRECT_LOGIN;
-        }
-        
         try {
-            cartService.addProductToCart(loggedInUser, productId, quantity);
+            if (isGuest(loggedInUser)) {
+                cartService.addProductToGuestCart(session.getId(), productId, quantity);
+            } else {
+                cartService.addProductToCart(loggedInUser, productId, quantity);
+            }
             redirectAttributes.addFlashAttribute("success", "Product added to cart successfully!");
         } catch (IllegalArgumentException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -84,6 +83,31 @@ public class CartController extends BaseController {
         return REDIRECT_CART;
     }
     
+    /**
+     * Add several products at once, e.g. from a shopping list or recipe (JSON API).
+     * Body: [{"productId": 1, "quantity": 2}, ...]. Either every line is added or none.
+     */
+    @PostMapping("/add-all")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> addAllToCart(@RequestBody List<CartLine> lines, HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            if (isGuest(loggedInUser)) {
+                cartService.addProductsToGuestCart(session.getId(), lines);
+                result.put("cartItemCount", cartService.getGuestCartItemCount(session.getId()));
+            } else {
+                cartService.addProductsToCart(loggedInUser, lines);
+                result.put("cartItemCount", cartService.getCartItemCount(loggedInUser));
+            }
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            result.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+    
     /**
      * Update cart item quantity
      */
@@ -96,13 +120,12 @@ public class CartController extends BaseController {
         
         User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
         
-        if (loggedInUser == null || loggedInUser.isGuest()) {
-            redirectAttributes.addFlashAttribute("error", "Please log in to update your cart.");
-            return REDIRECT_LOGIN;
-        }
-        
         try {
-            cartService.updateCartItemQuantity(loggedInUser, cartItemId, quantity);
+            if (isGuest(loggedInUser)) {
+                cartService.updateGuestCartItemQuantity(session.getId(), cartItemId, quantity);
+            } else {
+                cartService.updateCartItemQuantity(loggedInUser, cartItemId, quantity);
+            }
             redirectAttributes.addFlashAttribute("success", "Cart updated successfully!");
         } catch (IllegalArgumentException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -124,13 +147,12 @@ public class CartController extends BaseController {
         
         User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
         
-        if (loggedInUser == null || loggedInUser.isGuest()) {
-            redirectAttributes.addFlashAttribute("error", "Please log in to modify your cart.");
-            return REDIRECT_LOGIN;
-        }
-        
         try {
-            cartService.removeItemFromCart(loggedInUser, cartItemId);
+            if (isGuest(loggedInUser)) {
+                cartService.removeItemFromGuestCart(session.getId(), cartItemId);
+            } else {
+                cartService.removeItemFromCart(loggedInUser, cartItemId);
+            }
             redirectAttributes.addFlashAttribute("success", "Item removed from cart.");
         } catch (IllegalArgumentException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -148,13 +170,12 @@ public class CartController extends BaseController {
     public String clearCart(HttpSession session, RedirectAttributes redirectAttributes) {
         User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
         
-        if (loggedInUser == null || loggedInUser.isGuest()) {
-            redirectAttributes.addFlashAttribute("error", "Please log in to clear your cart.");
-            return REDIRECT_LOGIN;
-        }
-        
         try {
-            cartService.clearCart(loggedInUser);
+            if (isGuest(loggedInUser)) {
+                cartService.clearGuestCart(session.getId());
+            } else {
+                cartService.clearCart(loggedInUser);
+            }
             redirectAttributes.addFlashAttribute("success", "Cart cleared successfully!");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Error clearing cart. Please try again.");
@@ -171,10 +192,14 @@ public class CartController extends BaseController {
     public int getCartItemCount(HttpSession session) {
         User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
         
-        if (loggedInUser == null || loggedInUser.isGuest()) {
-            return 0;
+        if (isGuest(loggedInUser)) {
+            return cartService.getGuestCartItemCount(session.getId());
         }
         
         return cartService.getCartItemCount(loggedInUser);
     }
+    
+    private static boolean isGuest(User user) {
+        return user == null || user.isGuest();
+    }
 }
@@ -1,10 +1,13 @@
 package edu.metro.grocerystore.controller;
 
+import edu.metro.grocerystore.DTO.CartSummary;
 import edu.metro.grocerystore.model.CartItem;
 import edu.metro.grocerystore.model.Order;
+import edu.metro.grocerystore.model.Product;
 import edu.metro.grocerystore.model.User;
 import edu.metro.grocerystore.service.CartService;
 import edu.metro.grocerystore.service.OrderService;
+import edu.metro.grocerystore.service.StockReservationService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -12,9 +15,9 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Controller
 public class CheckoutController extends BaseController {
@@ -24,11 +27,14 @@ public class CheckoutController extends BaseController {
 
     private final CartService cartService;
     private final OrderService orderService;
+    private final StockReservationService stockReservationService;
 
     @Autowired
-    public CheckoutController(CartService cartService, OrderService orderService) {
+    public CheckoutController(CartService cartService, OrderService orderService,
+                              StockReservationService stockReservationService) {
         this.cartService = cartService;
         this.orderService = orderService;
+        this.stockReservationService = stockReservationService;
     }
 
     /**
@@ -42,20 +48,24 @@ public class CheckoutController extends BaseController {
             return REDIRECT_LOGIN;
         }
 
-        // Get cart items
-        List<CartItem> cartItems = cartService.getCartItems(loggedInUser);
+        // Get cart items, count and total in one load
+        CartSummary cart = cartService.getCartSummary(loggedInUser);
+        List<CartItem> cartItems = cart.getItems();
         
-        if (cartItems == null || cartItems.isEmpty()) {
+        if (cartItems.isEmpty()) {
             return "redirect:/cart";
         }
 
-        // Calculate totals
-        BigDecimal cartTotal = cartService.getCartTotal(loggedInUser);
-        int cartItemCount = cartService.getCartItemCount(loggedInUser);
+        // Hold the cart's stock while the customer completes payment
+        List<Product> unavailableProducts = stockReservationService.reserve(loggedInUser, cartItems);
+        model.addAttribute("unavailableProducts", unavailableProducts);
+        model.addAttribute("reservationExpiresAt", stockReservationService.getHoldExpiry(loggedInUser).orElse(null));
 
         model.addAttribute("cartItems", cartItems);
-        model.addAttribute("cartTotal", cartTotal);
-        model.addAttribute("cartItemCount", cartItemCount);
+        model.addAttribute("cartTotal", cart.getTotal());
+        model.addAttribute("cartItemCount", cart.getItemCount());
+        // Fresh key per page view; resubmitting this form returns the same order
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
 
         return "checkout";
     }
@@ -1,8 +1,9 @@
 package edu.metro.grocerystore.controller;
 
+import edu.metro.grocerystore.DTO.HomeFeed;
 import edu.metro.grocerystore.model.User;
+import edu.metro.grocerystore.service.HomeFeedService;
 import edu.metro.grocerystore.service.UserService;
-import edu.metro.grocerystore.service.ProductService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -13,21 +14,23 @@ import org.springframework.web.bind.annotation.GetMapping;
 public class HomeController extends BaseController {
 
     private final UserService userService;
-    private final ProductService productService;
+    private final HomeFeedService homeFeedService;
 
     @Autowired
-    public HomeController(UserService userService, ProductService productService) {
+    public HomeController(UserService userService, HomeFeedService homeFeedService) {
         this.userService = userService;
-        this.productService = productService;
+        this.homeFeedService = homeFeedService;
     }
 
     @GetMapping("/")
     public String getHome(Model model, HttpSession session) {
         // BaseController automatically adds user to model
         
-        // Add dynamic product data for the homepage
-        model.addAttribute("featuredProducts", productService.getFeaturedProducts(12));
-        model.addAttribute("allProducts", productService.getAllActiveProducts());
+        // Product sections come from the precomputed feed, so no catalog queries per request
+        HomeFeed feed = homeFeedService.getFeed();
+        model.addAttribute("featuredProducts", feed.getFeatured());
+        model.addAttribute("categoryHighlights", feed.getCategoryHighlights());
+        model.addAttribute("newArrivals", feed.getNewArrivals());
         
         return "home";
     }
@@ -3,6 +3,8 @@ package edu.metro.grocerystore.controller;
 import edu.metro.grocerystore.model.User;
 import edu.metro.grocerystore.service.UserService;
 import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -15,6 +17,8 @@ import java.util.Optional;
 @Controller
 public class LoginController extends BaseController {
 
+    private static final Logger logger = LoggerFactory.getLogger(LoginController.class);
+
     private final UserService userService;
 
     @Autowired
@@ -52,6 +56,14 @@ public class LoginController extends BaseController {
                 session.setAttribute("loggedInUser", user);
                 session.setAttribute("isLoggedIn", true);
                 
+                // Bring along anything added to the cart before logging in
+                try {
+                    cartService.mergeGuestCart(session.getId(), user);
+                } catch (RuntimeException e) {
+                    // A failed merge must not fail the login; the guest cart stays in the store
+                    logger.warn("Could not merge guest cart into the cart of user {}", user.getId(), e);
+                }
+                
                 // Add user to model for immediate use
                 model.addAttribute("user", user);
                 
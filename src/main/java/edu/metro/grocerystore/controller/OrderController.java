@@ -1,20 +1,30 @@
 package edu.metro.grocerystore.controller;
 
+import edu.metro.grocerystore.DTO.CheckoutJobStatus;
+import edu.metro.grocerystore.DTO.KeysetPage;
+import edu.metro.grocerystore.DTO.OrderSummary;
 import edu.metro.grocerystore.model.Order;
 import edu.metro.grocerystore.model.OrderStatus;
 import edu.metro.grocerystore.model.User;
+import edu.metro.grocerystore.service.AsyncCheckoutService;
+import edu.metro.grocerystore.service.IdempotencyKeyStore;
 import edu.metro.grocerystore.service.OrderService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Controller
 @RequestMapping("/orders")
@@ -23,12 +33,18 @@ public class OrderController extends BaseController {
     private static final String LOGGED_IN_USER_ATTR = "loggedInUser";
     private static final String REDIRECT_LOGIN = "redirect:/login";
     private static final String REDIRECT_ORDERS = "redirect:/orders";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
 
     private final OrderService orderService;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final AsyncCheckoutService asyncCheckoutService;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyKeyStore idempotencyKeyStore,
+                           AsyncCheckoutService asyncCheckoutService) {
         this.orderService = orderService;
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.asyncCheckoutService = asyncCheckoutService;
     }
 
     /**
@@ -44,6 +60,7 @@ public class OrderController extends BaseController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
             HttpSession session,
             Model model) {
 
@@ -53,7 +70,8 @@ public class OrderController extends BaseController {
             return REDIRECT_LOGIN;
         }
 
-        Page<Order> ordersPage;
+        Page<OrderSummary> ordersPage = null;
+        KeysetPage<OrderSummary> keysetPage = null;
         OrderStatus orderStatus = null;
 
         // Parse status if provided
@@ -67,44 +85,45 @@ public class OrderController extends BaseController {
 
         // Determine which orders to show based on user role
         boolean isAdminOrEmployee = loggedInUser.isAdmin() || loggedInUser.isEmployee();
-
-        // Apply filters and search
-        if (search != null && !search.trim().isEmpty()) {
+        User customer = isAdminOrEmployee ? null : loggedInUser;
+
+        // Apply filters and search; one filter at a time, in this order of precedence
+        if (cursor != null) {
+            // Keyset mode (an empty cursor is its first page) - seek past the cursor instead of
+            // OFFSET, and skip the count; same filters and precedence as below
+            String searchFilter = search != null && !search.trim().isEmpty() ? search : null;
+            OrderStatus statusFilter = startDate != null && endDate != null ? null : orderStatus;
+            keysetPage = scrollOrders(customer, statusFilter, startDate, endDate, searchFilter,
+                                      cursor, size, sortBy, sortDirection);
+        } else if (search != null && !search.trim().isEmpty()) {
             // Search by product name
-            if (isAdminOrEmployee) {
-                ordersPage = orderService.searchOrdersByProductName(search, page, size, sortBy, sortDirection);
-            } else {
-                ordersPage = orderService.searchOrdersByUserAndProductName(loggedInUser, search, page, size, sortBy, sortDirection);
-            }
+            ordersPage = orderService.getOrderSummaries(customer, null, null, null, search, page, size, sortBy, sortDirection);
         } else if (startDate != null && endDate != null) {
             // Filter by date range
-            if (isAdminOrEmployee) {
-                ordersPage = orderService.getOrdersByDateRange(startDate, endDate, page, size, sortBy, sortDirection);
-            } else {
-                ordersPage = orderService.getOrdersByUserAndDateRange(loggedInUser, startDate, endDate, page, size, sortBy, sortDirection);
-            }
+            ordersPage = orderService.getOrderSummaries(customer, null, startDate, endDate, null, page, size, sortBy, sortDirection);
         } else if (orderStatus != null) {
             // Filter by status
-            if (isAdminOrEmployee) {
-                ordersPage = orderService.getOrdersByStatus(orderStatus, page, size, sortBy, sortDirection);
-            } else {
-                ordersPage = orderService.getOrdersByUserAndStatus(loggedInUser, orderStatus, page, size, sortBy, sortDirection);
-            }
+            ordersPage = orderService.getOrderSummaries(customer, orderStatus, null, null, null, page, size, sortBy, sortDirection);
         } else {
             // No filters - show all orders
-            if (isAdminOrEmployee) {
-                ordersPage = orderService.getAllOrders(page, size, sortBy, sortDirection);
-            } else {
-                ordersPage = orderService.getOrdersByUser(loggedInUser, page, size, sortBy, sortDirection);
-            }
+            ordersPage = orderService.getOrderSummaries(customer, null, null, null, null, page, size, sortBy, sortDirection);
         }
 
         // Add attributes to model
         model.addAttribute("user", loggedInUser);
-        model.addAttribute("orders", ordersPage.getContent());
+        if (keysetPage != null) {
+            model.addAttribute("orders", keysetPage.getContent());
+            model.addAttribute("totalPages", 0);
+            model.addAttribute("totalElements", keysetPage.getContent().size());
+            model.addAttribute("keysetMode", true);
+            model.addAttribute("nextCursor", keysetPage.getNextCursor());
+        } else {
+            model.addAttribute("orders", ordersPage.getContent());
+            model.addAttribute("totalPages", ordersPage.getTotalPages());
+            model.addAttribute("totalElements", ordersPage.getTotalElements());
+            model.addAttribute("keysetMode", false);
+        }
         model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", ordersPage.getTotalPages());
-        model.addAttribute("totalElements", ordersPage.getTotalElements());
         model.addAttribute("size", size);
         model.addAttribute("sortBy", sortBy);
         model.addAttribute("sortDirection", sortDirection);
@@ -118,6 +137,21 @@ public class OrderController extends BaseController {
         return "orders/list";
     }
 
+    /**
+     * Fetch one keyset page of orders, starting over from the first page if the cursor is invalid
+     * @param customer only this customer's orders, or null for all orders
+     */
+    private KeysetPage<OrderSummary> scrollOrders(User customer, OrderStatus status, LocalDate startDate, LocalDate endDate,
+                                                  String search, String cursor, int size, String sortBy, String sortDirection) {
+        try {
+            return orderService.scrollOrderSummaries(customer, status, startDate, endDate, search,
+                                                     cursor, size, sortBy, sortDirection);
+        } catch (IllegalArgumentException e) {
+            return orderService.scrollOrderSummaries(customer, status, startDate, endDate, search,
+                                                     null, size, sortBy, sortDirection);
+        }
+    }
+
     /**
      * Display order details page
      */
@@ -134,7 +168,7 @@ public class OrderController extends BaseController {
             return REDIRECT_LOGIN;
         }
 
-        Optional<Order> orderOpt = orderService.getOrderById(orderId);
+        Optional<Order> orderOpt = orderService.getOrderWithItems(orderId);
 
         if (orderOpt.isEmpty()) {
             redirectAttributes.addFlashAttribute("error", "Order not found");
@@ -253,13 +287,18 @@ public class OrderController extends BaseController {
     }
 
     /**
-     * Create order from cart (checkout)
+     * Create order from cart (checkout).
+     * Repeated submissions with the same idempotency key (form field or Idempotency-Key header)
+     * are sent to the order created by the first one. With asynchronous checkout enabled the
+     * order is queued and the customer is sent to a page that waits for the result.
      */
     @PostMapping("/checkout")
     public String checkout(
             @RequestParam String storeLocation,
             @RequestParam(required = false) String billingAddress,
             @RequestParam(required = false) String notes,
+            @RequestParam(required = false) String idempotencyKey,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKeyHeader,
             HttpSession session,
             RedirectAttributes redirectAttributes) {
 
@@ -274,17 +313,24 @@ public class OrderController extends BaseController {
             // Simulate payment processing (not storing card details)
             // In a real application, this would integrate with a payment gateway
             
-            Order order = orderService.createOrderFromCart(loggedInUser, storeLocation);
+            String key = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKey;
+            if (key != null && key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new IllegalArgumentException("Invalid idempotency key");
+            }
+            // Scope keys to the customer so one user's key can never return another user's order
+            String scopedKey = key == null || key.isBlank() ? null : loggedInUser.getId() + ":" + key;
             
-            // Set notes if provided
-            if (notes != null && !notes.trim().isEmpty()) {
-                order.setNotes(notes);
-                orderService.updateOrder(order);
+            if (asyncCheckoutService.isEnabled()) {
+                String jobId = runOnce(scopedKey,
+                        () -> asyncCheckoutService.submit(loggedInUser, storeLocation, notes).getJobId());
+                return "redirect:/orders/checkout/pending/" + jobId;
             }
             
+            Integer orderId = runOnce(scopedKey, () -> placeOrder(loggedInUser, storeLocation, notes));
+            
             // Redirect to confirmation page
-            return "redirect:/order-confirmation?orderId=" + order.getOrderId() + "&success=true";
-        } catch (IllegalArgumentException e) {
+            return "redirect:/order-confirmation?orderId=" + orderId + "&success=true";
+        } catch (IllegalArgumentException | IllegalStateException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
             return "redirect:/checkout";
         } catch (Exception e) {
@@ -293,4 +339,57 @@ public class OrderController extends BaseController {
             return "redirect:/order-confirmation?success=false";
         }
     }
+
+    /**
+     * Page shown while a queued checkout is processed; it polls the status endpoint
+     */
+    @GetMapping("/checkout/pending/{jobId}")
+    public String showPendingCheckout(@PathVariable String jobId, HttpSession session, Model model) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+
+        if (loggedInUser == null || loggedInUser.isGuest()) {
+            return REDIRECT_LOGIN;
+        }
+        if (asyncCheckoutService.getStatus(jobId, loggedInUser).isEmpty()) {
+            return REDIRECT_ORDERS;
+        }
+
+        model.addAttribute("jobId", jobId);
+        return "checkout-pending";
+    }
+
+    /**
+     * Current state of a queued checkout, as JSON
+     */
+    @GetMapping("/checkout/status/{jobId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getCheckoutStatus(@PathVariable String jobId, HttpSession session) {
+        User loggedInUser = (User) session.getAttribute(LOGGED_IN_USER_ATTR);
+        Optional<CheckoutJobStatus> jobOpt = asyncCheckoutService.getStatus(jobId, loggedInUser);
+        if (jobOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        CheckoutJobStatus job = jobOpt.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", job.getState());
+        status.put("orderId", job.getOrderId());
+        status.put("message", job.getMessage());
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * Run the action directly, or through the idempotency store when a key was given
+     */
+    private <T> T runOnce(String scopedKey, Supplier<T> action) {
+        return scopedKey == null ? action.get() : idempotencyKeyStore.execute(scopedKey, action);
+    }
+
+    /**
+     * Create the order, with the customer's notes
+     * @return ID of the new order
+     */
+    private Integer placeOrder(User user, String storeLocation, String notes) {
+        return orderService.createOrderFromCart(user, storeLocation, notes).getOrderId();
+    }
 }
@@ -1,13 +1,22 @@
 package edu.metro.grocerystore.controller;
 
+import edu.metro.grocerystore.DTO.AutocompleteSuggestion;
+import edu.metro.grocerystore.DTO.CategorySummary;
+import edu.metro.grocerystore.DTO.KeysetPage;
+import edu.metro.grocerystore.DTO.ProductCard;
 import edu.metro.grocerystore.DTO.ProductSearchCriteria;
+import edu.metro.grocerystore.DTO.ProductSearchResult;
 import edu.metro.grocerystore.model.Product;
 import edu.metro.grocerystore.model.ProductCategory;
 import edu.metro.grocerystore.model.User;
+import edu.metro.grocerystore.service.HomeFeedService;
 import edu.metro.grocerystore.service.ProductService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 // image responses removed; images are served from static resources
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -18,6 +27,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -35,10 +45,12 @@ public class ProductController extends BaseController {
     private static final String PRODUCTS_LIST_VIEW = "products/list";
     
     private final ProductService productService;
+    private final HomeFeedService homeFeedService;
     
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, HomeFeedService homeFeedService) {
         this.productService = productService;
+        this.homeFeedService = homeFeedService;
     }
     
     /**
@@ -62,33 +74,49 @@ public class ProductController extends BaseController {
             @RequestParam(required = false) Integer categoryId,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) BigDecimal priceBelow,
             @RequestParam(required = false) Boolean isActive,
             @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String cursor,
             HttpSession session,
             Model model) {
         
-        Page<Product> productsPage;
+        Page<ProductCard> productsPage;
         boolean isAdminOrEmployee = isAdminOrEmployee(session);
         
         // Admin/Employee can see all products, customers see only active products
-        if (isAdminOrEmployee) {
+        if (cursor != null) {
+            // Keyset mode (an empty cursor is its first page) - seek past the cursor instead of
+            // OFFSET, and skip the count; same filters as the paged listing
+            ProductSearchCriteria criteria = new ProductSearchCriteria(search, categoryId, minPrice, maxPrice,
+                                                                       0, size, sortBy, sortDirection);
+            criteria.setPriceBelow(priceBelow);
+            criteria.setInStock(inStock);
+            KeysetPage<ProductCard> keysetPage = scrollProducts(criteria, isAdminOrEmployee ? isActive : Boolean.TRUE, cursor);
+            productsPage = new PageImpl<>(keysetPage.getContent());
+            model.addAttribute("keysetMode", true);
+            model.addAttribute("nextCursor", keysetPage.getNextCursor());
+        } else if (isAdminOrEmployee) {
             // Search with all filters including isActive and inStock
             productsPage = productService.searchAllProducts(search, categoryId, minPrice, maxPrice,
                                                            isActive, inStock, page, size, sortBy, sortDirection);
         } else {
-            // Customers only see active, in-stock products
-            if (search != null || categoryId != null || minPrice != null || maxPrice != null) {
-                ProductSearchCriteria criteria = new ProductSearchCriteria(search, categoryId, minPrice, maxPrice,
-                                                                           page, size, sortBy, sortDirection);
-                productsPage = productService.searchProducts(criteria);
-            } else {
-                productsPage = productService.getAllActiveProducts(page, size, sortBy, sortDirection);
-            }
+            // Customers only see active products; facet counts come from the same search
+            ProductSearchCriteria criteria = new ProductSearchCriteria(search, categoryId, minPrice, maxPrice,
+                                                                       page, size, sortBy, sortDirection);
+            criteria.setPriceBelow(priceBelow);
+            criteria.setInStock(inStock);
+            ProductSearchResult result = productService.searchProductsWithFacets(criteria);
+            productsPage = result.getProducts();
+            model.addAttribute("categoryCounts", result.getCategoryCounts());
+            model.addAttribute("priceBuckets", result.getPriceBuckets());
+            model.addAttribute("inStockCount", result.getInStockCount());
         }
         
         model.addAttribute(PRODUCTS_ATTR, productsPage.getContent());
         model.addAttribute(CURRENT_PAGE_ATTR, page);
-        model.addAttribute(TOTAL_PAGES_ATTR, productsPage.getTotalPages());
+        // A keyset page carries no total count, so page-number links are hidden
+        model.addAttribute(TOTAL_PAGES_ATTR, model.containsAttribute("keysetMode") ? 0 : productsPage.getTotalPages());
         model.addAttribute(TOTAL_ELEMENTS_ATTR, productsPage.getTotalElements());
         model.addAttribute("size", size);
         model.addAttribute(SORT_BY_ATTR, sortBy);
@@ -97,12 +125,13 @@ public class ProductController extends BaseController {
         model.addAttribute("categoryId", categoryId);
         model.addAttribute("minPrice", minPrice);
         model.addAttribute("maxPrice", maxPrice);
+        model.addAttribute("priceBelow", priceBelow);
         model.addAttribute("isActive", isActive);
         model.addAttribute("inStock", inStock);
         model.addAttribute("isAdminOrEmployee", isAdminOrEmployee);
         
         // Add categories for filter dropdown
-        List<ProductCategory> categories = productCategoryService.getAllCategories();
+        List<CategorySummary> categories = productCategoryService.getAllCategories();
         model.addAttribute(CATEGORIES_ATTR, categories);
         
         // Get max price for price slider
@@ -112,6 +141,17 @@ public class ProductController extends BaseController {
         return PRODUCTS_LIST_VIEW;
     }
     
+    /**
+     * Fetch one keyset page of products, starting over from the first page if the cursor is invalid
+     */
+    private KeysetPage<ProductCard> scrollProducts(ProductSearchCriteria criteria, Boolean isActive, String cursor) {
+        try {
+            return productService.scrollProducts(criteria, isActive, cursor);
+        } catch (IllegalArgumentException e) {
+            return productService.scrollProducts(criteria, isActive, null);
+        }
+    }
+    
     /**
      * Display products by category
      */
@@ -135,7 +175,7 @@ public class ProductController extends BaseController {
         
         ProductCategory category = categoryOpt.get();
         
-        Page<Product> productsPage;
+        Page<ProductCard> productsPage;
         
         // If additional filters are provided, use search functionality
         if (search != null || minPrice != null || maxPrice != null) {
@@ -160,7 +200,7 @@ public class ProductController extends BaseController {
         model.addAttribute("maxPrice", maxPrice);
         
         // Add categories for filter dropdown
-        List<ProductCategory> categories = productCategoryService.getAllCategories();
+        List<CategorySummary> categories = productCategoryService.getAllCategories();
         model.addAttribute(CATEGORIES_ATTR, categories);
         
         return PRODUCTS_LIST_VIEW;
@@ -181,7 +221,7 @@ public class ProductController extends BaseController {
         model.addAttribute("isAdminOrEmployee", isAdminOrEmployee(session));
         
         // Get related products from the same category
-        List<Product> relatedProducts = productService.getProductsByCategory(product.getCategory().getCategoryId());
+        List<ProductCard> relatedProducts = productService.getProductsByCategory(product.getCategory().getCategoryId());
         // Remove current product from related products and limit to 4
         relatedProducts = relatedProducts.stream()
                 .filter(p -> !p.getProductId().equals(id))
@@ -206,7 +246,7 @@ public class ProductController extends BaseController {
         
         ProductSearchCriteria criteria = new ProductSearchCriteria(q, null, null, null, 
                                                                 page, size, sortBy, sortDirection);
-        Page<Product> productsPage = productService.searchProducts(criteria);
+        Page<ProductCard> productsPage = productService.searchProducts(criteria);
         
         model.addAttribute(PRODUCTS_ATTR, productsPage.getContent());
         model.addAttribute(CURRENT_PAGE_ATTR, page);
@@ -219,20 +259,43 @@ public class ProductController extends BaseController {
         model.addAttribute("searchQuery", q);
         
         // Add categories for filter dropdown
-        List<ProductCategory> categories = productCategoryService.getAllCategories();
+        List<CategorySummary> categories = productCategoryService.getAllCategories();
         model.addAttribute(CATEGORIES_ATTR, categories);
         
         return PRODUCTS_LIST_VIEW;
     }
     
     /**
-     * Get featured products for home page
+     * Type-ahead suggestions for the search box (JSON)
+     */
+    @GetMapping("/api/products/autocomplete")
+    @ResponseBody
+    public List<AutocompleteSuggestion> autocomplete(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "8") int limit) {
+        return productService.getAutocompleteSuggestions(q, limit);
+    }
+    
+    /**
+     * Autocomplete index size and lookup latency (Admin/Employee only)
+     */
+    @GetMapping("/api/products/autocomplete/stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> autocompleteStats(HttpSession session) {
+        if (!isAdminOrEmployee(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(productService.getAutocompleteStats());
+    }
+    
+    /**
+     * Get featured products for home page: the best sellers from the precomputed home feed,
+     * rendered as the home page's carousel
      */
     @GetMapping("/api/products/featured")
     public String getFeaturedProducts(@RequestParam(defaultValue = "8") int limit, Model model) {
-        List<Product> featuredProducts = productService.getFeaturedProducts(limit);
-        model.addAttribute("featuredProducts", featuredProducts);
-        return "fragments/featured-products";
+        List<ProductCard> featured = homeFeedService.getFeed().getFeatured();
+        model.addAttribute("featuredProducts", featured.subList(0, Math.min(Math.max(limit, 0), featured.size())));
+        return "fragments/carousel :: featuredProductsCarousel(products=${featuredProducts})";
     }
     
     /**
@@ -249,16 +312,11 @@ public class ProductController extends BaseController {
         }
         
         try {
-            Optional<Product> productOpt = productService.getProductById(id);
-            if (productOpt.isEmpty()) {
+            if (!productService.setStock(id, quantity)) {
                 redirectAttributes.addFlashAttribute("error", "Product not found");
                 return "redirect:/products";
             }
             
-            Product product = productOpt.get();
-            product.setQuantity(quantity);
-            productService.updateProduct(product);
-            
             redirectAttributes.addFlashAttribute("success", "Product quantity updated successfully");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Failed to update product quantity: " + e.getMessage());
@@ -316,7 +374,7 @@ public class ProductController extends BaseController {
         }
         
         model.addAttribute("product", productOpt.get());
-        List<ProductCategory> categories = productCategoryService.getAllCategories();
+        List<CategorySummary> categories = productCategoryService.getAllCategories();
         model.addAttribute(CATEGORIES_ATTR, categories);
         
         return "admin/edit-product";
@@ -335,6 +393,7 @@ public class ProductController extends BaseController {
                                @RequestParam(required = false) String description,
                                @RequestParam(required = false) String imageUrl,
                                @RequestParam Integer categoryId,
+                               @RequestParam Long version,
                                HttpSession session,
                                RedirectAttributes redirectAttributes) {
         if (!isAdminOrEmployee(session)) {
@@ -377,7 +436,7 @@ public class ProductController extends BaseController {
             product.setImageUrl(imageUrl);
             product.setCategory(categoryOpt.get());
             
-            productService.updateProduct(product);
+            productService.updateProduct(product, version);
             redirectAttributes.addFlashAttribute("success", "Product updated successfully");
             return "redirect:/products/" + product.getProductId();
             
@@ -397,7 +456,7 @@ public class ProductController extends BaseController {
         }
         
         model.addAttribute("product", new Product());
-        List<ProductCategory> categories = productCategoryService.getAllCategories();
+        List<CategorySummary> categories = productCategoryService.getAllCategories();
         model.addAttribute(CATEGORIES_ATTR, categories);
         
         return "admin/add-product";
@@ -8,11 +8,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name="carts")
+@Table(name="carts", indexes = {
+        @Index(name = "idx_carts_updated", columnList = "updated_at")
+})
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carts_seq")
+    @SequenceGenerator(name = "carts_seq", sequenceName = "carts_seq", allocationSize = 50)
     @Column(name="cart_id")
     private Integer cartId;
 
@@ -23,6 +26,10 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<CartItem> cartItems = new ArrayList<>();
 
+    // Total quantity across all items, kept in step with cartItems by CartService
+    @Column(name="item_count")
+    private Integer itemCount = 0;
+
     @Column(name="created_at")
     private Instant createdAt;
 
@@ -67,6 +74,14 @@ public class Cart {
         this.cartItems = cartItems;
     }
 
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
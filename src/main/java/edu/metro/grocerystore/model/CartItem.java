@@ -5,11 +5,14 @@ import java.math.BigDecimal;
 
 
 @Entity
-@Table(name="cart_items")
+@Table(name="cart_items", indexes = {
+        @Index(name = "idx_cart_items_cart_product", columnList = "cart_id, product_id")
+})
 public class CartItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     @Column(name="cart_item_id")
     private Integer cartItemId;
 
@@ -9,10 +9,15 @@ import java.util.List;
 
 
 @Entity
-@Table(name="orders")
+@Table(name="orders", indexes = {
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_orders_status_created", columnList = "order_status, created_at"),
+        @Index(name = "idx_orders_created", columnList = "created_at")
+})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     @Column(name="order_id")
     private Integer orderId;
 
@@ -48,19 +53,14 @@ public class Order {
     public Order(){
     }
 
-    public Order(User user, OrderStatus status, String storeLocation){
+    public Order(User user, OrderStatus status, String storeLocation, String orderNumber){
         this.user = user;
         this.orderStatus = status;
         this.storeLocation = storeLocation;
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
         this.totalAmount = BigDecimal.ZERO;
-        this.orderNumber = generateOrderNumber();
-    }
-
-    private String generateOrderNumber() {
-        // Generate order number like ORD-2025111901234
-        return "ORD-" + System.currentTimeMillis();
+        this.orderNumber = orderNumber;
     }
 
     public void calculateTotal() {
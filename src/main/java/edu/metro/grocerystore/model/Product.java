@@ -1,14 +1,22 @@
 package edu.metro.grocerystore.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name="products")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
+@Table(name="products", indexes = {
+        @Index(name = "idx_products_category_active", columnList = "category_id, is_active"),
+        @Index(name = "idx_products_sku", columnList = "sku")
+})
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     @Column(name="product_id")
     private Integer productId;
 
@@ -42,6 +50,11 @@ public class Product {
     @JoinColumn(name="category_id", referencedColumnName="category_id")
     private ProductCategory category;
 
+    // Optimistic lock; the default fills the column for rows created before it existed
+    @Version
+    @Column(name="version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     // Constructors
     public Product() {}
 
@@ -136,6 +149,10 @@ public class Product {
         this.category = category;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     // Business methods
     public boolean adjustStock(Integer quantityChange) {
         if (this.quantity + quantityChange < 0) {
@@ -1,9 +1,13 @@
 package edu.metro.grocerystore.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product_categories")
 @Table(name="product_categories")
 public class ProductCategory {
 
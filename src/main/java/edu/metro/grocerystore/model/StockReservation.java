@@ -0,0 +1,63 @@
+package edu.metro.grocerystore.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A short-lived hold on product stock taken when a customer starts checkout.
+ * Rows mirror the in-memory holds so they survive a restart.
+ */
+@Entity
+@Table(name="stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_user", columnList = "user_id"),
+        @Index(name = "idx_stock_reservations_expires", columnList = "expires_at")
+})
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)
+    @Column(name="reservation_id")
+    private Integer reservationId;
+
+    @Column(name="user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name="product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name="quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name="expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public StockReservation() {}
+
+    public StockReservation(Integer userId, Integer productId, Integer quantity, Instant expiresAt) {
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -3,12 +3,14 @@ package edu.metro.grocerystore.repository;
 import edu.metro.grocerystore.model.Cart;
 import edu.metro.grocerystore.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface CartRepository extends JpaRepository<Cart, Integer> {
+public interface CartRepository extends JpaRepository<Cart, Integer>, CartWriteRepository {
     
     /**
      * Find cart by user
@@ -20,6 +22,20 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
      */
     Optional<Cart> findByUser_Userid(Integer userId);
     
+    /**
+     * Find a user's cart with its items, their products and categories in one query
+     */
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.cartItems ci LEFT JOIN FETCH ci.product p " +
+           "LEFT JOIN FETCH p.category WHERE c.user.userid = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Integer userId);
+    
+    /**
+     * Find the stored item count of a user's cart without loading the cart or its items
+     * @return the count, or null when the user has no cart or its count was never stored
+     */
+    @Query("SELECT c.itemCount FROM Cart c WHERE c.user.userid = :userId")
+    Integer findItemCountByUserId(@Param("userId") Integer userId);
+    
     /**
      * Check if cart exists for user
      */
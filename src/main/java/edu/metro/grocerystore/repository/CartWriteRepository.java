@@ -0,0 +1,47 @@
+package edu.metro.grocerystore.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Cart writes that run as plain SQL batches instead of through the entities,
+ * used by the write-behind cart store to save many carts at once.
+ */
+public interface CartWriteRepository {
+
+    /**
+     * Replace the contents of several users' carts, creating carts that do not exist yet.
+     * Runs a fixed number of JDBC batches however many carts are written, and must be
+     * called inside a transaction so a failed batch leaves every cart as it was.
+     * @param quantitiesByUserId product ID -> quantity for each user's cart, keyed by user ID (empty map clears the cart)
+     * @return number of cart item rows written
+     */
+    int replaceCarts(Map<Integer, Map<Integer, Integer>> quantitiesByUserId);
+
+    /**
+     * Add quantities to an existing cart in one batched upsert: products already in the
+     * cart have their quantity increased, the rest are inserted. The cart's stored item
+     * count is brought up to date in the same call.
+     * @param cartId cart to add to
+     * @param quantitiesByProductId quantity to add, keyed by product ID
+     */
+    void mergeItems(Integer cartId, Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Find and lock the next chunk of carts not updated since the cutoff, in cart ID order.
+     * Must run inside a transaction, which holds the row locks until it ends.
+     * @param updatedBefore carts last updated before this instant are abandoned
+     * @param afterCartId only carts with a higher ID (0 to start from the beginning)
+     * @param limit chunk size
+     * @return cart ID -> user ID, ordered by cart ID
+     */
+    Map<Integer, Integer> lockAbandonedCarts(Instant updatedBefore, int afterCartId, int limit);
+
+    /**
+     * Delete carts and their items with one bulk DELETE each
+     * @param cartIds carts to delete
+     * @return number of cart item rows deleted
+     */
+    int deleteCartsWithItems(Collection<Integer> cartIds);
+}
@@ -0,0 +1,161 @@
+package edu.metro.grocerystore.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link CartWriteRepository}, picked up by Spring Data
+ * as a fragment of {@link CartRepository}
+ */
+public class CartWriteRepositoryImpl implements CartWriteRepository {
+
+    // Must match allocationSize of the Cart and CartItem @SequenceGenerator
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String INSERT_CART_SQL =
+            "INSERT INTO carts (cart_id, user_id, item_count, created_at, updated_at) VALUES (?, ?, 0, ?, ?)";
+    private static final String DELETE_ITEMS_SQL = "DELETE FROM cart_items WHERE cart_id = ?";
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO cart_items (cart_item_id, cart_id, product_id, quantity) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_CART_SQL = "UPDATE carts SET item_count = ?, updated_at = ? WHERE cart_id = ?";
+    private static final String MERGE_ITEM_SQL =
+            "MERGE INTO cart_items ci USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS INTEGER), " +
+            "CAST(? AS INTEGER))) AS v(cart_item_id, cart_id, product_id, quantity) " +
+            "ON ci.cart_id = v.cart_id AND ci.product_id = v.product_id " +
+            "WHEN MATCHED THEN UPDATE SET quantity = ci.quantity + v.quantity " +
+            "WHEN NOT MATCHED THEN INSERT (cart_item_id, cart_id, product_id, quantity) " +
+            "VALUES (v.cart_item_id, v.cart_id, v.product_id, v.quantity)";
+    private static final String RECOUNT_CART_SQL =
+            "UPDATE carts SET item_count = (SELECT COALESCE(SUM(quantity), 0) FROM cart_items WHERE cart_id = ?), " +
+            "updated_at = ? WHERE cart_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CartWriteRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int replaceCarts(Map<Integer, Map<Integer, Integer>> quantitiesByUserId) {
+        if (quantitiesByUserId.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+
+        Map<Integer, Integer> cartIdsByUserId = findCartIds(quantitiesByUserId.keySet());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer userId : quantitiesByUserId.keySet()) {
+            if (!cartIdsByUserId.containsKey(userId)) {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Object[]> newCarts = new ArrayList<>();
+            Iterator<Integer> newCartIds = nextIds("carts_seq", missing.size()).iterator();
+            for (Integer userId : missing) {
+                Integer cartId = newCartIds.next();
+                newCarts.add(new Object[]{cartId, userId, now, now});
+                cartIdsByUserId.put(userId, cartId);
+            }
+            jdbcTemplate.batchUpdate(INSERT_CART_SQL, newCarts);
+        }
+
+        List<Integer> cartIds = new ArrayList<>(cartIdsByUserId.values());
+        int itemRows = quantitiesByUserId.values().stream().mapToInt(Map::size).sum();
+        Iterator<Integer> itemIds = nextIds("cart_items_seq", itemRows).iterator();
+        List<Object[]> items = new ArrayList<>();
+        List<Object[]> counts = new ArrayList<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> cart : quantitiesByUserId.entrySet()) {
+            Integer cartId = cartIdsByUserId.get(cart.getKey());
+            int itemCount = 0;
+            for (Map.Entry<Integer, Integer> item : cart.getValue().entrySet()) {
+                items.add(new Object[]{itemIds.next(), cartId, item.getKey(), item.getValue()});
+                itemCount += item.getValue();
+            }
+            counts.add(new Object[]{itemCount, now, cartId});
+        }
+
+        jdbcTemplate.batchUpdate(DELETE_ITEMS_SQL, cartIds, cartIds.size(), (ps, cartId) -> ps.setInt(1, cartId));
+        if (!items.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items);
+        }
+        jdbcTemplate.batchUpdate(UPDATE_CART_SQL, counts);
+        return items.size();
+    }
+
+    @Override
+    public void mergeItems(Integer cartId, Map<Integer, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return;
+        }
+        // Every line gets an ID in case it is inserted; those of updated lines go unused
+        Iterator<Integer> itemIds = nextIds("cart_items_seq", quantitiesByProductId.size()).iterator();
+        List<Object[]> lines = new ArrayList<>();
+        quantitiesByProductId.forEach((productId, quantity) ->
+                lines.add(new Object[]{itemIds.next(), cartId, productId, quantity}));
+        jdbcTemplate.batchUpdate(MERGE_ITEM_SQL, lines);
+        jdbcTemplate.update(RECOUNT_CART_SQL, cartId, Timestamp.from(Instant.now()), cartId);
+    }
+
+    @Override
+    public Map<Integer, Integer> lockAbandonedCarts(Instant updatedBefore, int afterCartId, int limit) {
+        Map<Integer, Integer> userIdsByCartId = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT cart_id, user_id FROM carts WHERE updated_at < ? AND cart_id > ? " +
+                        "ORDER BY cart_id LIMIT ? FOR UPDATE",
+                rs -> {
+                    userIdsByCartId.put(rs.getInt(1), rs.getInt(2));
+                }, Timestamp.from(updatedBefore), afterCartId, limit);
+        return userIdsByCartId;
+    }
+
+    @Override
+    public int deleteCartsWithItems(Collection<Integer> cartIds) {
+        if (cartIds.isEmpty()) {
+            return 0;
+        }
+        Object[] params = cartIds.toArray();
+        String placeholders = String.join(", ", Collections.nCopies(params.length, "?"));
+        int items = jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (" + placeholders + ")", params);
+        jdbcTemplate.update("DELETE FROM carts WHERE cart_id IN (" + placeholders + ")", params);
+        return items;
+    }
+
+    /**
+     * Reserve IDs from a pooled sequence the same way Hibernate's pooled optimizer does,
+     * where each value read stands for the block of IDs ending at it
+     */
+    private List<Integer> nextIds(String sequence, int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            Long high = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+            for (long id = Math.max(1, high - ID_ALLOCATION_SIZE + 1); id <= high && ids.size() < count; id++) {
+                ids.add((int) id);
+            }
+        }
+        return ids;
+    }
+
+    private Map<Integer, Integer> findCartIds(Iterable<Integer> userIds) {
+        List<Object> params = new ArrayList<>();
+        userIds.forEach(params::add);
+        String placeholders = String.join(", ", Collections.nCopies(params.size(), "?"));
+        Map<Integer, Integer> cartIdsByUserId = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, cart_id FROM carts WHERE user_id IN (" + placeholders + ")",
+                rs -> {
+                    cartIdsByUserId.put(rs.getInt(1), rs.getInt(2));
+                }, params.toArray());
+        return cartIdsByUserId;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.metro.grocerystore.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * The application DataSource. Without a replica URL it is just the primary database;
+ * with one, read-only transactions run on the replica and all other work on the primary.
+ * Both pools take their settings from spring.datasource.hikari.*, as Boot's own pool would.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private final String replicaUrl;
+    private final String replicaUsername;
+    private final String replicaPassword;
+
+    public DataSourceConfig(@Value("${grocerystore.datasource.replica.url:}") String replicaUrl,
+                            @Value("${grocerystore.datasource.replica.username:}") String replicaUsername,
+                            @Value("${grocerystore.datasource.replica.password:}") String replicaPassword) {
+        this.replicaUrl = replicaUrl;
+        this.replicaUsername = replicaUsername;
+        this.replicaPassword = replicaPassword;
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        bindPoolSettings(binder, primary);
+        if (replicaUrl.isBlank()) {
+            return primary;
+        }
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername.isBlank() ? properties.determineUsername() : replicaUsername)
+                .password(replicaUsername.isBlank() ? properties.determinePassword() : replicaPassword)
+                .build();
+        bindPoolSettings(binder, replica);
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return new LazyConnectionDataSourceProxy(new ReadOnlyRoutingDataSource(primary, replica));
+    }
+
+    /**
+     * Apply spring.datasource.hikari.* (pool size, timeouts...) to a pool built here,
+     * since Boot only binds them to the DataSource it creates itself
+     */
+    private static void bindPoolSettings(Binder binder, HikariDataSource pool) {
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+    }
+
+    /**
+     * With a replica, Hibernate must give its connection back after each transaction;
+     * by default it keeps one for the whole request, and the next transaction could
+     * then write through a replica connection
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandling() {
+        return hibernateProperties -> {
+            if (!replicaUrl.isBlank()) {
+                hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                        "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package edu.metro.grocerystore.repository;
+
+import jakarta.persistence.Query;
+
+import java.util.Map;
+
+/**
+ * Seek condition and ORDER BY of one keyset (seek) page query, sorted on one field with the ID
+ * as tie-breaker. The condition is written so its first part can use an index on the sort field.
+ */
+final class KeysetJpql {
+
+    private final String sortPath;
+    private final String idPath;
+    private final boolean descending;
+    private final Map<String, Object> after;
+    private final String sortBy;
+    private final String idProperty;
+
+    /**
+     * @param sortPath JPQL path of the sort field
+     * @param idPath JPQL path of the ID
+     * @param after sort key values of the last row of the previous page, keyed by sortBy and
+     *              idProperty, or empty for the first page
+     */
+    KeysetJpql(String sortPath, String idPath, String sortDirection, String sortBy, String idProperty,
+               Map<String, Object> after) {
+        if (!after.isEmpty() && (after.get(idProperty) == null || !after.containsKey(sortBy))) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        this.sortPath = sortPath;
+        this.idPath = idPath;
+        this.descending = "DESC".equalsIgnoreCase(sortDirection);
+        this.after = after;
+        this.sortBy = sortBy;
+        this.idProperty = idProperty;
+    }
+
+    /**
+     * Condition for rows after the previous page, or null for the first page
+     */
+    String condition() {
+        if (after.isEmpty()) {
+            return null;
+        }
+        String op = descending ? "<" : ">";
+        if (sortPath.equals(idPath)) {
+            return idPath + " " + op + " :afterId";
+        }
+        return sortPath + " " + op + "= :afterKey AND (" + sortPath + " " + op + " :afterKey OR "
+                + idPath + " " + op + " :afterId)";
+    }
+
+    String orderBy() {
+        String direction = descending ? " DESC" : " ASC";
+        return "ORDER BY " + sortPath + direction + (sortPath.equals(idPath) ? "" : ", " + idPath + direction);
+    }
+
+    void bind(Query query) {
+        if (after.isEmpty()) {
+            return;
+        }
+        if (!sortPath.equals(idPath)) {
+            query.setParameter("afterKey", after.get(sortBy));
+        }
+        query.setParameter("afterId", after.get(idProperty));
+    }
+}
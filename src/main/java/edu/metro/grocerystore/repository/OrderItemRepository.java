@@ -3,6 +3,7 @@ package edu.metro.grocerystore.repository;
 import edu.metro.grocerystore.model.Order;
 import edu.metro.grocerystore.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +14,8 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     List<OrderItem> findByOrder(Order order);
     
     void deleteByOrder(Order order);
+    
+    // Units sold per product, as [productId, totalQuantity] rows
+    @Query("SELECT oi.product.productId, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.product.productId")
+    List<Object[]> sumQuantityByProduct();
 }
@@ -1,10 +1,12 @@
 package edu.metro.grocerystore.repository;
 
+import edu.metro.grocerystore.DTO.OrderSummary;
 import edu.metro.grocerystore.model.Order;
 import edu.metro.grocerystore.model.OrderStatus;
 import edu.metro.grocerystore.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,16 +17,90 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Integer> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, OrderSummaryScrollRepository {
     
     // Find by order number
     Optional<Order> findByOrderNumber(String orderNumber);
     
+    // Order detail: customer, items, products and categories in one query
+    @EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product", "orderItems.product.category"})
+    Optional<Order> findWithItemsByOrderId(Integer orderId);
+    
     // Find all orders for a specific user
     Page<Order> findByUser(User user, Pageable pageable);
     
     List<Order> findByUser(User user);
     
+    /*
+     * Order list rows as projections: header, customer name and item count in one query.
+     * One query per filter combination, with only the filters it applies, so each can use
+     * the index on its columns (the customer is matched on orders.user_id, not the join).
+     */
+    String ORDER_SUMMARY_SELECT = "SELECT new edu.metro.grocerystore.DTO.OrderSummary(" +
+           "o.orderId, o.orderNumber, o.orderStatus, u.firstName, u.lastName, o.storeLocation, o.createdAt, o.totalAmount, " +
+           "(SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.order = o)) " +
+           "FROM Order o JOIN o.user u ";
+    String ORDER_COUNT_SELECT = "SELECT COUNT(o) FROM Order o ";
+    String ORDER_CONTAINS_PRODUCT = "EXISTS (SELECT 1 FROM OrderItem si JOIN si.product sp " +
+           "WHERE si.order = o AND LOWER(sp.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')))";
+    
+    @Query(value = ORDER_SUMMARY_SELECT, countQuery = ORDER_COUNT_SELECT)
+    Page<OrderSummary> findOrderSummaries(Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.orderStatus = :status",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.orderStatus = :status")
+    Page<OrderSummary> findOrderSummariesByStatus(@Param("status") OrderStatus status, Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.createdAt >= :startDate AND o.createdAt < :endDate",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.createdAt >= :startDate AND o.createdAt < :endDate")
+    Page<OrderSummary> findOrderSummariesByDateRange(@Param("startDate") Instant startDate,
+                                                     @Param("endDate") Instant endDate,
+                                                     Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.orderStatus = :status AND o.createdAt >= :startDate AND o.createdAt < :endDate",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.orderStatus = :status AND o.createdAt >= :startDate AND o.createdAt < :endDate")
+    Page<OrderSummary> findOrderSummariesByDateRangeAndStatus(@Param("startDate") Instant startDate,
+                                                              @Param("endDate") Instant endDate,
+                                                              @Param("status") OrderStatus status,
+                                                              Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE " + ORDER_CONTAINS_PRODUCT,
+           countQuery = ORDER_COUNT_SELECT + "WHERE " + ORDER_CONTAINS_PRODUCT)
+    Page<OrderSummary> findOrderSummariesByProductName(@Param("searchTerm") String searchTerm, Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.user = :user",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.user = :user")
+    Page<OrderSummary> findOrderSummariesByUser(@Param("user") User user, Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.user = :user AND o.orderStatus = :status",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.user = :user AND o.orderStatus = :status")
+    Page<OrderSummary> findOrderSummariesByUserAndStatus(@Param("user") User user,
+                                                         @Param("status") OrderStatus status,
+                                                         Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.user = :user AND o.createdAt >= :startDate AND o.createdAt < :endDate",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.user = :user AND o.createdAt >= :startDate AND o.createdAt < :endDate")
+    Page<OrderSummary> findOrderSummariesByUserAndDateRange(@Param("user") User user,
+                                                            @Param("startDate") Instant startDate,
+                                                            @Param("endDate") Instant endDate,
+                                                            Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.user = :user AND o.orderStatus = :status " +
+                   "AND o.createdAt >= :startDate AND o.createdAt < :endDate",
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.user = :user AND o.orderStatus = :status " +
+                   "AND o.createdAt >= :startDate AND o.createdAt < :endDate")
+    Page<OrderSummary> findOrderSummariesByUserDateRangeAndStatus(@Param("user") User user,
+                                                                  @Param("startDate") Instant startDate,
+                                                                  @Param("endDate") Instant endDate,
+                                                                  @Param("status") OrderStatus status,
+                                                                  Pageable pageable);
+    
+    @Query(value = ORDER_SUMMARY_SELECT + "WHERE o.user = :user AND " + ORDER_CONTAINS_PRODUCT,
+           countQuery = ORDER_COUNT_SELECT + "WHERE o.user = :user AND " + ORDER_CONTAINS_PRODUCT)
+    Page<OrderSummary> findOrderSummariesByUserAndProductName(@Param("user") User user,
+                                                              @Param("searchTerm") String searchTerm,
+                                                              Pageable pageable);
+    
     // Find orders by user and status
     Page<Order> findByUserAndOrderStatus(User user, OrderStatus status, Pageable pageable);
     
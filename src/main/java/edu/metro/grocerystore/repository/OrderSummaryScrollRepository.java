@@ -0,0 +1,33 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.DTO.OrderSummary;
+import edu.metro.grocerystore.model.OrderStatus;
+import edu.metro.grocerystore.model.User;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order list rows with keyset (seek) pagination: each page is one projection query
+ * that seeks past the last row of the previous page, with no OFFSET and no count query.
+ */
+public interface OrderSummaryScrollRepository {
+
+    /**
+     * Scroll order list rows, applying only the filters given
+     * @param user only this customer's orders (optional)
+     * @param status status filter (optional)
+     * @param startDate start of the date filter, inclusive (optional, needs endDate)
+     * @param endDate end of the date filter, exclusive (optional, needs startDate)
+     * @param searchTerm only orders containing a product whose name matches (optional)
+     * @param sortBy field to sort by
+     * @param sortDirection sort direction (ASC/DESC)
+     * @param after sort field value and orderId of the last row of the previous page, or empty for the first page
+     * @param limit maximum number of rows
+     * @return matching order list rows, in sort order
+     */
+    List<OrderSummary> scrollOrderSummaries(User user, OrderStatus status, Instant startDate, Instant endDate,
+                                            String searchTerm, String sortBy, String sortDirection,
+                                            Map<String, Object> after, int limit);
+}
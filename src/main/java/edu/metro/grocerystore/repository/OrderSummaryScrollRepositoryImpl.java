@@ -0,0 +1,78 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.DTO.OrderSummary;
+import edu.metro.grocerystore.model.OrderStatus;
+import edu.metro.grocerystore.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL implementation of {@link OrderSummaryScrollRepository}, picked up by Spring Data
+ * as a fragment of {@link OrderRepository}. Like the paged summary queries, only the filters
+ * given are applied, so each page can use the index on their columns.
+ */
+public class OrderSummaryScrollRepositoryImpl implements OrderSummaryScrollRepository {
+
+    // JPQL path of each field order listings can be sorted by
+    private static final Map<String, String> SORT_PATHS = Map.of(
+            "createdAt", "o.createdAt",
+            "orderNumber", "o.orderNumber",
+            "totalAmount", "o.totalAmount",
+            "orderStatus", "o.orderStatus",
+            "orderId", "o.orderId");
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public OrderSummaryScrollRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<OrderSummary> scrollOrderSummaries(User user, OrderStatus status, Instant startDate, Instant endDate,
+                                                   String searchTerm, String sortBy, String sortDirection,
+                                                   Map<String, Object> after, int limit) {
+        String sortPath = SORT_PATHS.get(sortBy);
+        if (sortPath == null) {
+            throw new IllegalArgumentException("Cannot sort orders by " + sortBy);
+        }
+        KeysetJpql keyset = new KeysetJpql(sortPath, "o.orderId", sortDirection, sortBy, "orderId", after);
+
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (user != null) {
+            conditions.add("o.user = :user");
+            parameters.put("user", user);
+        }
+        if (status != null) {
+            conditions.add("o.orderStatus = :status");
+            parameters.put("status", status);
+        }
+        if (startDate != null && endDate != null) {
+            conditions.add("o.createdAt >= :startDate AND o.createdAt < :endDate");
+            parameters.put("startDate", startDate);
+            parameters.put("endDate", endDate);
+        }
+        if (searchTerm != null) {
+            conditions.add(OrderRepository.ORDER_CONTAINS_PRODUCT);
+            parameters.put("searchTerm", searchTerm);
+        }
+        if (keyset.condition() != null) {
+            conditions.add(keyset.condition());
+        }
+
+        String where = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+        TypedQuery<OrderSummary> query = entityManager.createQuery(
+                OrderRepository.ORDER_SUMMARY_SELECT + where + keyset.orderBy(), OrderSummary.class);
+        parameters.forEach(query::setParameter);
+        keyset.bind(query);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
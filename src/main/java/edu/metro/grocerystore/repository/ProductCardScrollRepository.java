@@ -0,0 +1,25 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.DTO.ProductCard;
+import edu.metro.grocerystore.DTO.ProductSearchCriteria;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product card listings with keyset (seek) pagination: each page is one projection query
+ * that seeks past the last row of the previous page, with no OFFSET and no count query.
+ */
+public interface ProductCardScrollRepository {
+
+    /**
+     * Scroll product cards with the filters of the product searches
+     * @param criteria search term, category, price and stock filters, sort field and direction (page is ignored)
+     * @param isActive active status filter (optional)
+     * @param after sort field value and productId of the last row of the previous page, or empty for the first page
+     * @param limit maximum number of rows
+     * @return cards of matching products, in sort order
+     */
+    List<ProductCard> scrollProductCards(ProductSearchCriteria criteria, Boolean isActive,
+                                         Map<String, Object> after, int limit);
+}
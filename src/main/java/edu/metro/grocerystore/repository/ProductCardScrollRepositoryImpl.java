@@ -0,0 +1,56 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.DTO.ProductCard;
+import edu.metro.grocerystore.DTO.ProductSearchCriteria;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL implementation of {@link ProductCardScrollRepository}, picked up by Spring Data
+ * as a fragment of {@link ProductRepository}
+ */
+public class ProductCardScrollRepositoryImpl implements ProductCardScrollRepository {
+
+    // JPQL path of each field product listings can be sorted by
+    private static final Map<String, String> SORT_PATHS = Map.of(
+            "name", "p.name",
+            "price", "p.price",
+            "quantity", "p.quantity",
+            "productId", "p.productId");
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public ProductCardScrollRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<ProductCard> scrollProductCards(ProductSearchCriteria criteria, Boolean isActive,
+                                                Map<String, Object> after, int limit) {
+        String sortPath = SORT_PATHS.get(criteria.getSortBy());
+        if (sortPath == null) {
+            throw new IllegalArgumentException("Cannot sort products by " + criteria.getSortBy());
+        }
+        KeysetJpql keyset = new KeysetJpql(sortPath, "p.productId", criteria.getSortDirection(),
+                criteria.getSortBy(), "productId", after);
+        String seek = keyset.condition();
+
+        TypedQuery<ProductCard> query = entityManager.createQuery(ProductRepository.PRODUCT_CARD_SELECT
+                + ProductRepository.PRODUCT_SEARCH_FILTERS + "AND " + ProductRepository.ALL_PRODUCT_STATUS_FILTERS
+                + (seek != null ? " AND " + seek : "") + " " + keyset.orderBy(), ProductCard.class);
+        query.setParameter("searchTerm", criteria.getSearchTerm());
+        query.setParameter("categoryId", criteria.getCategoryId());
+        query.setParameter("minPrice", criteria.getMinPrice());
+        query.setParameter("maxPrice", criteria.getMaxPrice());
+        query.setParameter("priceBelow", criteria.getPriceBelow());
+        query.setParameter("isActive", isActive);
+        query.setParameter("inStock", criteria.getInStock());
+        keyset.bind(query);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -1,5 +1,6 @@
 package edu.metro.grocerystore.repository;
 
+import edu.metro.grocerystore.DTO.ProductCard;
 import edu.metro.grocerystore.model.Product;
 import edu.metro.grocerystore.model.ProductCategory;
 import org.springframework.data.domain.Page;
@@ -10,11 +11,35 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductStockRepository,
+        ProductCardScrollRepository {
+    
+    // Listing page cards: the columns a card shows, with the category name from one join
+    String PRODUCT_CARD_COLUMNS = "SELECT new edu.metro.grocerystore.DTO.ProductCard(" +
+           "p.productId, p.name, p.price, p.imageUrl, c.categoryName, p.quantity, p.reorderLevel, p.isActive) ";
+    String PRODUCT_CARD_SELECT = PRODUCT_CARD_COLUMNS + "FROM Product p LEFT JOIN p.category c ";
+    // Inner join for the category pages, so H2 can look the category up first and then use
+    // the products index; filtering on an outer-joined category makes it scan products
+    String PRODUCT_CARD_IN_CATEGORY_SELECT = PRODUCT_CARD_COLUMNS + "FROM Product p JOIN p.category c " +
+           "WHERE c.categoryId = :categoryId AND p.isActive = true";
+    
+    // maxPrice is inclusive and priceBelow exclusive, as in ProductSearchCriteria.isInPriceRange
+    String PRODUCT_SEARCH_FILTERS = "WHERE " +
+           "(:searchTerm IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
+           "(:categoryId IS NULL OR p.category.categoryId = :categoryId) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+           "(:priceBelow IS NULL OR p.price < :priceBelow) ";
+    
+    // Extra filters of the admin/employee search, which also lists inactive products
+    String ALL_PRODUCT_STATUS_FILTERS =
+           "(:isActive IS NULL OR p.isActive = :isActive) AND " +
+           "(:inStock IS NULL OR (:inStock = true AND p.quantity > 0) OR (:inStock = false AND p.quantity = 0))";
     
     /**
      * Find all active products
@@ -84,12 +109,57 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<Product> findLowStockProducts();
     
     /**
-     * Find featured products (you can customize this logic)
-     * @param limit maximum number of products to return
-     * @return list of featured products
+     * Cards of the newest active products (IDs come from a sequence, so newest is highest)
+     * @param pageable maximum number of products to return
+     * @return cards of the newest products
+     */
+    @Query(PRODUCT_CARD_SELECT + "WHERE p.isActive = true ORDER BY p.productId DESC")
+    List<ProductCard> findNewestCards(Pageable pageable);
+    
+    /**
+     * Cards of the best selling active products, by units ordered. Products never ordered are left out.
+     * @param categoryId category to limit to, or null for all categories
+     * @param pageable maximum number of products to return
+     * @return cards of the best sellers, best first
+     */
+    @Query(PRODUCT_CARD_SELECT + "JOIN OrderItem oi ON oi.product = p " +
+           "WHERE p.isActive = true AND (:categoryId IS NULL OR c.categoryId = :categoryId) " +
+           "GROUP BY p.productId, p.name, p.price, p.imageUrl, c.categoryName, p.quantity, p.reorderLevel, p.isActive " +
+           "ORDER BY SUM(oi.quantity) DESC, p.productId DESC")
+    List<ProductCard> findBestSellingCards(@Param("categoryId") Integer categoryId, Pageable pageable);
+    
+    /**
+     * Cards of all active products
+     * @return cards of active products
+     */
+    @Query(PRODUCT_CARD_SELECT + "WHERE p.isActive = true")
+    List<ProductCard> findActiveCards();
+    
+    /**
+     * Cards of the active products in a category
+     * @param categoryId the category ID
+     * @return cards of products in the category
      */
-    @Query("SELECT p FROM Product p WHERE p.isActive = true ORDER BY p.productId DESC")
-    List<Product> findFeaturedProducts(Pageable pageable);
+    @Query(PRODUCT_CARD_IN_CATEGORY_SELECT)
+    List<ProductCard> findActiveCardsByCategoryId(@Param("categoryId") Integer categoryId);
+    
+    /**
+     * Cards of the active products in a category, with pagination
+     * @param categoryId the category ID
+     * @param pageable pagination information
+     * @return page of cards of products in the category
+     */
+    @Query(value = PRODUCT_CARD_IN_CATEGORY_SELECT,
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.categoryId = :categoryId AND p.isActive = true")
+    Page<ProductCard> findActiveCardsByCategoryId(@Param("categoryId") Integer categoryId, Pageable pageable);
+    
+    /**
+     * Cards of the given products (e.g. one page of search index hits)
+     * @param productIds product IDs
+     * @return cards of the matching products, in no particular order
+     */
+    @Query(PRODUCT_CARD_SELECT + "WHERE p.productId IN :productIds")
+    List<ProductCard> findCardsByProductIdIn(@Param("productIds") Collection<Integer> productIds);
     
     /**
      * Search products by multiple criteria
@@ -97,19 +167,17 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
      * @param categoryId category filter (optional)
      * @param minPrice minimum price filter (optional)
      * @param maxPrice maximum price filter (optional)
+     * @param priceBelow exclusive price upper bound of a price facet (optional)
      * @param pageable pagination information
-     * @return page of matching products
+     * @return page of cards of matching products
      */
-    @Query("SELECT p FROM Product p WHERE " +
-           "(:searchTerm IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-           "(:categoryId IS NULL OR p.category.categoryId = :categoryId) AND " +
-           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "p.isActive = true")
-    Page<Product> searchProducts(@Param("searchTerm") String searchTerm,
+    @Query(value = PRODUCT_CARD_SELECT + PRODUCT_SEARCH_FILTERS + "AND p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p " + PRODUCT_SEARCH_FILTERS + "AND p.isActive = true")
+    Page<ProductCard> searchProducts(@Param("searchTerm") String searchTerm,
                                 @Param("categoryId") Integer categoryId,
                                 @Param("minPrice") BigDecimal minPrice,
                                 @Param("maxPrice") BigDecimal maxPrice,
+                                @Param("priceBelow") BigDecimal priceBelow,
                                 Pageable pageable);
     
     /**
@@ -139,22 +207,19 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
      * @param categoryId category filter (optional)
      * @param minPrice minimum price filter (optional)
      * @param maxPrice maximum price filter (optional)
+     * @param priceBelow exclusive price upper bound of a price facet (optional)
      * @param isActive active status filter (optional)
      * @param inStock stock availability filter (optional)
      * @param pageable pagination information
-     * @return page of matching products
+     * @return page of cards of matching products
      */
-    @Query("SELECT p FROM Product p WHERE " +
-           "(:searchTerm IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-           "(:categoryId IS NULL OR p.category.categoryId = :categoryId) AND " +
-           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "(:isActive IS NULL OR p.isActive = :isActive) AND " +
-           "(:inStock IS NULL OR (:inStock = true AND p.quantity > 0) OR (:inStock = false AND p.quantity = 0))")
-    Page<Product> searchAllProducts(@Param("searchTerm") String searchTerm,
+    @Query(value = PRODUCT_CARD_SELECT + PRODUCT_SEARCH_FILTERS + "AND " + ALL_PRODUCT_STATUS_FILTERS,
+           countQuery = "SELECT COUNT(p) FROM Product p " + PRODUCT_SEARCH_FILTERS + "AND " + ALL_PRODUCT_STATUS_FILTERS)
+    Page<ProductCard> searchAllProducts(@Param("searchTerm") String searchTerm,
                                     @Param("categoryId") Integer categoryId,
                                     @Param("minPrice") BigDecimal minPrice,
                                     @Param("maxPrice") BigDecimal maxPrice,
+                                    @Param("priceBelow") BigDecimal priceBelow,
                                     @Param("isActive") Boolean isActive,
                                     @Param("inStock") Boolean inStock,
                                     Pageable pageable);
@@ -165,4 +230,20 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
      */
     @Query("SELECT MAX(p.price) FROM Product p")
     BigDecimal findMaxPrice();
+    
+    /**
+     * Get the current stock of the given products without loading the entities
+     * @param productIds product IDs
+     * @return rows of [productId, quantity]
+     */
+    @Query("SELECT p.productId, p.quantity FROM Product p WHERE p.productId IN :productIds")
+    List<Object[]> findQuantitiesByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+    
+    /**
+     * Find the given products with their categories in one query
+     * @param productIds product IDs
+     * @return matching products, in no particular order
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.productId IN :productIds")
+    List<Product> findWithCategoryByProductIdIn(@Param("productIds") Collection<Integer> productIds);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package edu.metro.grocerystore.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock updates that run as plain SQL instead of through the entity,
+ * so that the database applies the availability check and the write together.
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Decrement stock for several products in one JDBC batch. Each row is only
+     * updated if it still holds at least the requested quantity plus the quantity
+     * reserved for other customers.
+     * Rows that did update are not rolled back here, so callers must run inside
+     * a transaction and fail it when the returned list is not empty.
+     * @param quantitiesByProductId quantity to remove, keyed by product ID
+     * @param reservedByProductId quantity that must remain for others' holds, keyed by product ID (missing means 0)
+     * @return IDs of products that did not have enough stock (empty when all succeeded)
+     */
+    List<Integer> decrementStockIfAvailable(Map<Integer, Integer> quantitiesByProductId,
+                                            Map<Integer, Integer> reservedByProductId);
+}
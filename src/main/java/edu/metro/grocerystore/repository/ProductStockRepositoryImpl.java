@@ -0,0 +1,77 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC implementation of {@link ProductStockRepository}, picked up by Spring Data
+ * as a fragment of {@link ProductRepository}
+ */
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET quantity = quantity - ?, version = version + 1 WHERE product_id = ? AND quantity >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ProductStockRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public List<Integer> decrementStockIfAvailable(Map<Integer, Integer> quantitiesByProductId,
+                                                   Map<Integer, Integer> reservedByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return List.of();
+        }
+
+        // Lock rows in ID order so two concurrent checkouts cannot deadlock on each other
+        List<Map.Entry<Integer, Integer>> lines = new ArrayList<>(new TreeMap<>(quantitiesByProductId).entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setInt(2, line.getKey());
+            ps.setInt(3, line.getValue() + reservedByProductId.getOrDefault(line.getKey(), 0));
+        })[0];
+        evictFromEntityCache(quantitiesByProductId.keySet());
+
+        List<Integer> insufficient = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            // SUCCESS_NO_INFO means the driver did not report a count, not that the row was missed
+            if (updated[i] == 0 || updated[i] == Statement.EXECUTE_FAILED) {
+                insufficient.add(lines.get(i).getKey());
+            }
+        }
+        return insufficient;
+    }
+
+    /**
+     * The update bypasses Hibernate, so drop the products from the second-level cache
+     * now and again once the transaction ends, in case a reader cached the old row meanwhile
+     */
+    private void evictFromEntityCache(Collection<Integer> productIds) {
+        List<Integer> ids = List.copyOf(productIds);
+        ids.forEach(id -> entityManagerFactory.getCache().evict(Product.class, id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(id -> entityManagerFactory.getCache().evict(Product.class, id));
+                }
+            });
+        }
+    }
+}
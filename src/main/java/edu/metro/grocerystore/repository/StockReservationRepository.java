@@ -0,0 +1,34 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Integer> {
+
+    /**
+     * Find reservations that have not yet expired
+     */
+    List<StockReservation> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Delete all reservations held by a user
+     */
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Delete reservations that expired before the given time
+     */
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
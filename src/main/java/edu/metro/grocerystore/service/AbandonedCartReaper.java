@@ -0,0 +1,167 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintenance job that deletes carts (and their items) nobody has touched for a while.
+ * Carts are processed in small chunks in cart ID order, each chunk in its own short
+ * transaction with one bulk DELETE per table, and the job pauses between chunks and
+ * stops after a set number per run, so it never holds locks or the database for long.
+ * A deleted cart is simply created again the next time its customer adds something.
+ */
+@Component
+public class AbandonedCartReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartReaper.class);
+
+    private final CartRepository cartRepository;
+    private final CartService cartService;
+    private final WriteBehindCartStore cartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration abandonedAfter;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final int maxChunksPerRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder cartsDeleted = new LongAdder();
+    private final LongAdder itemsDeleted = new LongAdder();
+    private volatile int lastCartId = 0;
+    private volatile long lastRunAt = 0;
+    private volatile long lastRunMs = 0;
+    private volatile int lastRunCarts = 0;
+
+    @Autowired
+    public AbandonedCartReaper(CartRepository cartRepository,
+                               CartService cartService,
+                               WriteBehindCartStore cartStore,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${grocerystore.cart.reaper.enabled:true}") boolean enabled,
+                               @Value("${grocerystore.cart.reaper.abandoned-after-days:30}") int abandonedAfterDays,
+                               @Value("${grocerystore.cart.reaper.chunk-size:200}") int chunkSize,
+                               @Value("${grocerystore.cart.reaper.pause-ms:500}") long pauseMs,
+                               @Value("${grocerystore.cart.reaper.max-chunks-per-run:50}") int maxChunksPerRun) {
+        this.cartRepository = cartRepository;
+        this.cartService = cartService;
+        this.cartStore = cartStore;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.abandonedAfter = Duration.ofDays(abandonedAfterDays);
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
+
+    /**
+     * Delete abandoned carts, a chunk at a time
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.cart.reaper.interval-ms:3600000}",
+               initialDelayString = "${grocerystore.cart.reaper.interval-ms:3600000}")
+    public void reapAbandonedCarts() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Instant cutoff = Instant.now().minus(abandonedAfter);
+        int deletedThisRun = 0;
+        try {
+            int afterCartId = 0;
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                ChunkResult result = reapChunk(cutoff, afterCartId);
+                if (result == null) {
+                    break;
+                }
+                afterCartId = result.lastCartId();
+                lastCartId = afterCartId;
+                deletedThisRun += result.carts();
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("Abandoned cart cleanup stopped early: {}", e.getMessage());
+        } finally {
+            runs.increment();
+            lastRunAt = start;
+            lastRunMs = System.currentTimeMillis() - start;
+            lastRunCarts = deletedThisRun;
+            running.set(false);
+        }
+        if (deletedThisRun > 0) {
+            logger.info("Deleted {} abandoned carts in {} ms", deletedThisRun, lastRunMs);
+        }
+    }
+
+    /**
+     * Delete one chunk of abandoned carts in its own transaction
+     * @return what was deleted, or null when no abandoned carts are left
+     */
+    private ChunkResult reapChunk(Instant cutoff, int afterCartId) {
+        return transactionTemplate.execute(status -> {
+            Map<Integer, Integer> userIdsByCartId = cartRepository.lockAbandonedCarts(cutoff, afterCartId, chunkSize);
+            if (userIdsByCartId.isEmpty()) {
+                return null;
+            }
+            int lastId = afterCartId;
+            List<Integer> cartIds = new ArrayList<>();
+            List<Integer> userIds = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> cart : userIdsByCartId.entrySet()) {
+                lastId = cart.getKey();
+                // A cart held by the write-behind store may have changes not yet written
+                if (!cartStore.isActive(cart.getValue())) {
+                    cartIds.add(cart.getKey());
+                    userIds.add(cart.getValue());
+                }
+            }
+            int items = cartRepository.deleteCartsWithItems(cartIds);
+            cartService.forgetItemCounts(userIds);
+
+            chunks.increment();
+            cartsDeleted.add(cartIds.size());
+            itemsDeleted.add(items);
+            return new ChunkResult(lastId, cartIds.size());
+        });
+    }
+
+    /**
+     * Progress and totals of the cleanup job
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running.get());
+        stats.put("runs", runs.sum());
+        stats.put("chunks", chunks.sum());
+        stats.put("cartsDeleted", cartsDeleted.sum());
+        stats.put("itemsDeleted", itemsDeleted.sum());
+        stats.put("lastCartId", lastCartId);
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMs", lastRunMs);
+        stats.put("lastRunCarts", lastRunCarts);
+        return stats;
+    }
+
+    private record ChunkResult(int lastCartId, int carts) {
+    }
+}
@@ -0,0 +1,175 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.CheckoutJobStatus;
+import edu.metro.grocerystore.model.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs checkouts off the request thread. Submissions wait in a bounded queue for a
+ * fixed pool of workers; when the queue is full new submissions are turned away
+ * instead of piling up, which is the admission control for flash-sale load.
+ * Customers poll the job status until it completes or fails.
+ */
+@Service
+public class AsyncCheckoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncCheckoutService.class);
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final long statusRetentionMs;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, CheckoutJobStatus> jobs = new ConcurrentHashMap<>();
+    // User ID -> job still queued or processing, so repeat submissions join it
+    private final Map<Integer, CheckoutJobStatus> activeJobsByUser = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Autowired
+    public AsyncCheckoutService(OrderService orderService,
+                                @Value("${grocerystore.checkout.async.enabled:false}") boolean enabled,
+                                @Value("${grocerystore.checkout.async.workers:4}") int workers,
+                                @Value("${grocerystore.checkout.async.queue-capacity:200}") int queueCapacity,
+                                @Value("${grocerystore.checkout.async.status-retention-ms:900000}") long statusRetentionMs) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.statusRetentionMs = statusRetentionMs;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "checkout-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Whether checkout should go through the queue instead of running on the request thread
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a checkout of the user's cart. A user with a checkout still in progress
+     * gets that job back instead of a second one.
+     * @return the queued (or already running) job
+     * @throws IllegalStateException if the queue is full
+     */
+    public CheckoutJobStatus submit(User user, String storeLocation, String notes) {
+        if (user == null || user.isGuest()) {
+            throw new IllegalArgumentException("User must be logged in to create an order");
+        }
+
+        CheckoutJobStatus[] created = new CheckoutJobStatus[1];
+        CheckoutJobStatus job = activeJobsByUser.computeIfAbsent(user.getId(), userId -> {
+            created[0] = new CheckoutJobStatus(UUID.randomUUID().toString(), userId);
+            return created[0];
+        });
+        if (job != created[0]) {
+            return job;
+        }
+
+        jobs.put(job.getJobId(), job);
+        try {
+            executor.execute(() -> process(job, user, storeLocation, notes));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            activeJobsByUser.remove(user.getId(), job);
+            rejected.increment();
+            throw new IllegalStateException("Checkout is very busy right now. Please try again in a moment.");
+        }
+        submitted.increment();
+        return job;
+    }
+
+    /**
+     * Status of a job, only if it belongs to the given user
+     */
+    public Optional<CheckoutJobStatus> getStatus(String jobId, User user) {
+        CheckoutJobStatus job = jobs.get(jobId);
+        if (job == null || user == null || !job.getUserId().equals(user.getId())) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    /**
+     * Queue depth, worker activity and outcome counts
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    /**
+     * Forget finished jobs once customers have had time to see the result
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.checkout.async.status-retention-ms:900000}")
+    public void removeFinishedJobs() {
+        Instant cutoff = Instant.now().minusMillis(statusRetentionMs);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Checkout workers did not finish within 10 seconds; {} checkouts left queued",
+                    executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+
+    private void process(CheckoutJobStatus job, User user, String storeLocation, String notes) {
+        job.markProcessing();
+        try {
+            Integer orderId = orderService.createOrderFromCart(user, storeLocation, notes).getOrderId();
+            job.markCompleted(orderId);
+            completed.increment();
+        } catch (IllegalArgumentException e) {
+            job.markFailed(e.getMessage());
+            failed.increment();
+        } catch (Exception e) {
+            logger.error("Asynchronous checkout {} failed", job.getJobId(), e);
+            job.markFailed("Payment processing failed. Please try again.");
+            failed.increment();
+        } finally {
+            activeJobsByUser.remove(user.getId(), job);
+        }
+    }
+}
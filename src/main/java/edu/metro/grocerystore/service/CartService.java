@@ -1,5 +1,7 @@
 package edu.metro.grocerystore.service;
 
+import edu.metro.grocerystore.DTO.CartLine;
+import edu.metro.grocerystore.DTO.CartSummary;
 import edu.metro.grocerystore.model.Cart;
 import edu.metro.grocerystore.model.CartItem;
 import edu.metro.grocerystore.model.Product;
@@ -10,25 +12,52 @@ import edu.metro.grocerystore.repository.ProductRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class CartService {
     
+    // Most lines accepted by one bulk add
+    public static final int MAX_BULK_LINES = 100;
+    
+    // Request attribute holding the cart summary already loaded while handling the current request
+    private static final String CART_SUMMARY_ATTR = CartService.class.getName() + ".cartSummary";
+    
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
+    private final StockReservationService stockReservationService;
+    private final WriteBehindCartStore cartStore;
+    private final GuestCartStore guestCartStore;
+    
+    // User ID -> total quantity in that user's cart, so the header badge needs no query
+    private final Map<Integer, Integer> cartItemCounts = new ConcurrentHashMap<>();
     
     @Autowired
     public CartService(CartRepository cartRepository, 
                       CartItemRepository cartItemRepository,
-                      ProductRepository productRepository) {
+                      ProductRepository productRepository,
+                      StockReservationService stockReservationService,
+                      WriteBehindCartStore cartStore,
+                      GuestCartStore guestCartStore) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
+        this.stockReservationService = stockReservationService;
+        this.cartStore = cartStore;
+        this.guestCartStore = guestCartStore;
     }
     
     /**
@@ -42,7 +71,8 @@ public class CartService {
         return cartRepository.findByUser(user)
                 .orElseGet(() -> {
                     Cart newCart = new Cart(user);
-                    return cartRepository.save(newCart);
+                    // Insert right away; sequence IDs would otherwise delay it past the JDBC item writes
+                    return cartRepository.saveAndFlush(newCart);
                 });
     }
     
@@ -54,7 +84,8 @@ public class CartService {
     }
     
     /**
-     * Add product to cart
+     * Add product to cart.
+     * With the write-behind cart store enabled the change is made in memory and null is returned.
      */
     @Transactional
     public Cart addProductToCart(User user, Integer productId, Integer quantity) {
@@ -66,9 +97,6 @@ public class CartService {
             throw new IllegalArgumentException("Quantity must be greater than 0");
         }
         
-        // Get or create cart
-        Cart cart = getOrCreateCart(user);
-        
         // Get product
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
@@ -78,11 +106,23 @@ public class CartService {
             throw new IllegalArgumentException("Product is not available: " + product.getName());
         }
         
-        // Check if sufficient stock
-        if (product.getQuantity() < quantity) {
+        // Check if sufficient stock, leaving out what other customers hold at checkout
+        int available = stockReservationService.getAvailableToSell(product, user);
+        if (available < quantity) {
             throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
         }
         
+        if (cartStore.isEnabled()) {
+            if (!cartStore.addQuantity(user.getId(), productId, quantity, available)) {
+                throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
+            }
+            forgetCartSummary();
+            return null;
+        }
+        
+        // Get or create cart
+        Cart cart = getOrCreateCart(user);
+        
         // Check if product already in cart
         Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
         
@@ -92,7 +132,7 @@ public class CartService {
             int newQuantity = item.getQuantity() + quantity;
             
             // Check stock for new quantity
-            if (product.getQuantity() < newQuantity) {
+            if (available < newQuantity) {
                 throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
             }
             
@@ -106,11 +146,157 @@ public class CartService {
         }
         
         cart.setUpdatedAt(Instant.now());
+        updateItemCount(user, cart);
         return cartRepository.save(cart);
     }
     
     /**
-     * Update cart item quantity
+     * Add several products to the cart at once (e.g. a shopping list or recipe).
+     * All products are loaded in one query and every line is checked before anything
+     * is written, so either all lines are added or none; the items are then written
+     * in one batched upsert. Repeated products are added together.
+     */
+    @Transactional
+    public void addProductsToCart(User user, List<CartLine> lines) {
+        if (user == null || user.isGuest()) {
+            throw new IllegalArgumentException("User must be logged in to add items to cart");
+        }
+        
+        Map<Integer, Integer> additions = collectLines(lines);
+        if (cartStore.isEnabled()) {
+            Map<Integer, Integer> limits = checkBulkStock(additions, cartStore.getQuantities(user.getId()), user);
+            if (!cartStore.addAll(user.getId(), additions, limits)) {
+                // Another request added to the cart since the check
+                throw new IllegalArgumentException("Insufficient stock for one or more products");
+            }
+            forgetCartSummary();
+            return;
+        }
+        
+        Cart cart = cartRepository.findWithItemsByUserId(user.getId())
+                .orElseGet(() -> cartRepository.saveAndFlush(new Cart(user)));
+        Map<Integer, Integer> current = new HashMap<>();
+        for (CartItem item : cart.getCartItems()) {
+            current.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+        }
+        checkBulkStock(additions, current, user);
+        
+        cartRepository.mergeItems(cart.getCartId(), additions);
+        forgetCartSummary();
+        forgetItemCount(user.getId());
+    }
+    
+    /**
+     * Add several products to a guest's in-memory cart at once, all or none
+     */
+    public void addProductsToGuestCart(String guestId, List<CartLine> lines) {
+        Map<Integer, Integer> additions = collectLines(lines);
+        Map<Integer, Integer> limits = checkBulkStock(additions, guestCartStore.getQuantities(guestId), null);
+        if (!guestCartStore.addAll(guestId, additions, limits)) {
+            // Another request added to the cart since the check
+            throw new IllegalArgumentException("Insufficient stock for one or more products");
+        }
+    }
+    
+    /**
+     * Validate bulk add lines and total them by product ID
+     */
+    private Map<Integer, Integer> collectLines(List<CartLine> lines) {
+        Map<Integer, Integer> additions = new LinkedHashMap<>();
+        for (CartLine line : lines == null ? List.<CartLine>of() : lines) {
+            if (line == null || line.getProductId() == null) {
+                throw new IllegalArgumentException("Product ID is required");
+            }
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than 0");
+            }
+            additions.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        if (additions.isEmpty()) {
+            throw new IllegalArgumentException("No products to add");
+        }
+        if (additions.size() > MAX_BULK_LINES) {
+            throw new IllegalArgumentException("Too many products, at most " + MAX_BULK_LINES + " can be added at once");
+        }
+        return additions;
+    }
+    
+    /**
+     * Check every addition against available stock, loading all products in one query
+     * @param current quantities already in the cart, which count against stock too
+     * @param user the customer, whose own checkout hold is theirs to use (null for guests)
+     * @return product ID -> most units the cart may hold
+     */
+    private Map<Integer, Integer> checkBulkStock(Map<Integer, Integer> additions, Map<Integer, Integer> current, User user) {
+        Map<Integer, Product> productsById = findProductsById(additions.keySet());
+        Map<Integer, Integer> limits = getAvailableToSell(productsById, user);
+        
+        for (Map.Entry<Integer, Integer> addition : additions.entrySet()) {
+            Product product = productsById.get(addition.getKey());
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found with ID: " + addition.getKey());
+            }
+            if (!product.isAvailable()) {
+                throw new IllegalArgumentException("Product is not available: " + product.getName());
+            }
+            if (current.getOrDefault(addition.getKey(), 0) + addition.getValue() > limits.get(addition.getKey())) {
+                throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
+            }
+        }
+        return limits;
+    }
+    
+    /**
+     * Fit additions into available stock instead of rejecting them: a line that would take the
+     * cart over what is available is capped, and one for a missing, inactive or sold out product is dropped
+     * @param current quantities already in the cart, which count against stock too
+     * @param user the customer, whose own checkout hold is theirs to use
+     * @return product ID -> quantity that fits, for the lines that fit at all
+     */
+    private Map<Integer, Integer> fitToStock(Map<Integer, Integer> additions, Map<Integer, Integer> current, User user) {
+        Map<Integer, Product> productsById = findProductsById(additions.keySet());
+        Map<Integer, Integer> limits = getAvailableToSell(productsById, user);
+        
+        Map<Integer, Integer> fitted = new LinkedHashMap<>();
+        additions.forEach((productId, quantity) -> {
+            Product product = productsById.get(productId);
+            if (product == null || !product.isAvailable()) {
+                return;
+            }
+            int room = limits.get(productId) - current.getOrDefault(productId, 0);
+            if (room > 0) {
+                fitted.put(productId, Math.min(quantity, room));
+            }
+        });
+        return fitted;
+    }
+    
+    /**
+     * Load products in one query, keyed by ID (missing IDs are left out)
+     */
+    private Map<Integer, Product> findProductsById(Collection<Integer> productIds) {
+        Map<Integer, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            productsById.put(product.getProductId(), product);
+        }
+        return productsById;
+    }
+    
+    /**
+     * Units of each product the customer may have in their cart: stock less what other customers hold at checkout
+     * @param user the customer, whose own checkout hold is theirs to use (null for guests)
+     */
+    private Map<Integer, Integer> getAvailableToSell(Map<Integer, Product> productsById, User user) {
+        Map<Integer, Integer> heldByOthers = stockReservationService.getHeldByOthers(user, productsById.keySet());
+        Map<Integer, Integer> available = new HashMap<>();
+        productsById.forEach((productId, product) ->
+                available.put(productId, Math.max(0, product.getQuantity() - heldByOthers.getOrDefault(productId, 0))));
+        return available;
+    }
+    
+    /**
+     * Update cart item quantity.
+     * With the write-behind cart store enabled the cart item ID is the product ID, and null is returned.
      */
     @Transactional
     public Cart updateCartItemQuantity(User user, Integer cartItemId, Integer quantity) {
@@ -122,6 +308,22 @@ public class CartService {
             throw new IllegalArgumentException("Invalid quantity");
         }
         
+        if (cartStore.isEnabled()) {
+            if (!cartStore.getQuantities(user.getId()).containsKey(cartItemId)) {
+                throw new IllegalArgumentException("Cart item not found");
+            }
+            if (quantity > 0) {
+                Product product = productRepository.findById(cartItemId)
+                        .orElseThrow(() -> new IllegalArgumentException("Cart item not found"));
+                if (stockReservationService.getAvailableToSell(product, user) < quantity) {
+                    throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
+                }
+            }
+            cartStore.setQuantity(user.getId(), cartItemId, quantity);
+            forgetCartSummary();
+            return null;
+        }
+        
         Cart cart = getOrCreateCart(user);
         
         CartItem item = cartItemRepository.findById(cartItemId)
@@ -138,7 +340,7 @@ public class CartService {
             cartItemRepository.delete(item);
         } else {
             // Check stock
-            if (item.getProduct().getQuantity() < quantity) {
+            if (stockReservationService.getAvailableToSell(item.getProduct(), user) < quantity) {
                 throw new IllegalArgumentException("Insufficient stock for product: " + item.getProduct().getName());
             }
             
@@ -147,11 +349,13 @@ public class CartService {
         }
         
         cart.setUpdatedAt(Instant.now());
+        updateItemCount(user, cart);
         return cartRepository.save(cart);
     }
     
     /**
-     * Remove item from cart
+     * Remove item from cart.
+     * With the write-behind cart store enabled the cart item ID is the product ID, and null is returned.
      */
     @Transactional
     public Cart removeItemFromCart(User user, Integer cartItemId) {
@@ -159,6 +363,15 @@ public class CartService {
             throw new IllegalArgumentException("User must be logged in");
         }
         
+        if (cartStore.isEnabled()) {
+            if (!cartStore.getQuantities(user.getId()).containsKey(cartItemId)) {
+                throw new IllegalArgumentException("Cart item not found");
+            }
+            cartStore.setQuantity(user.getId(), cartItemId, 0);
+            forgetCartSummary();
+            return null;
+        }
+        
         Cart cart = getOrCreateCart(user);
         
         CartItem item = cartItemRepository.findById(cartItemId)
@@ -173,11 +386,14 @@ public class CartService {
         cartItemRepository.delete(item);
         
         cart.setUpdatedAt(Instant.now());
+        updateItemCount(user, cart);
         return cartRepository.save(cart);
     }
     
     /**
-     * Clear all items from cart
+     * Clear all items from cart.
+     * With the write-behind cart store enabled the cart is emptied once the surrounding
+     * transaction (e.g. the order) commits, and flushed straight away; null is returned.
      */
     @Transactional
     public Cart clearCart(User user) {
@@ -185,47 +401,288 @@ public class CartService {
             throw new IllegalArgumentException("User must be logged in");
         }
         
+        if (cartStore.isEnabled()) {
+            Integer userId = user.getId();
+            forgetCartSummary();
+            TransactionCallbacks.runAfterCommit(() -> {
+                cartStore.clear(userId);
+                cartStore.flush();
+            });
+            return null;
+        }
+        
         Cart cart = getOrCreateCart(user);
         cart.clearCart();
         cartItemRepository.deleteByCart(cart);
         
         cart.setUpdatedAt(Instant.now());
+        updateItemCount(user, cart);
         return cartRepository.save(cart);
     }
     
     /**
-     * Get cart item count for user
+     * Add product to a guest's cart, which lives in memory only (keyed by session ID)
+     */
+    public void addProductToGuestCart(String guestId, Integer productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+        
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+        if (!product.isAvailable()) {
+            throw new IllegalArgumentException("Product is not available: " + product.getName());
+        }
+        
+        int available = stockReservationService.getAvailableToSell(product, null);
+        if (!guestCartStore.addQuantity(guestId, productId, quantity, available)) {
+            throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
+        }
+    }
+    
+    /**
+     * Update the quantity of a product in a guest's cart; the cart item ID is the product ID
+     */
+    public void updateGuestCartItemQuantity(String guestId, Integer cartItemId, Integer quantity) {
+        if (quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("Invalid quantity");
+        }
+        
+        if (quantity > 0) {
+            Product product = productRepository.findById(cartItemId)
+                    .orElseThrow(() -> new IllegalArgumentException("Cart item not found"));
+            if (stockReservationService.getAvailableToSell(product, null) < quantity) {
+                throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
+            }
+        }
+        if (!guestCartStore.setQuantity(guestId, cartItemId, quantity)) {
+            throw new IllegalArgumentException("Cart item not found");
+        }
+    }
+    
+    /**
+     * Remove a product from a guest's cart; the cart item ID is the product ID
+     */
+    public void removeItemFromGuestCart(String guestId, Integer cartItemId) {
+        if (!guestCartStore.setQuantity(guestId, cartItemId, 0)) {
+            throw new IllegalArgumentException("Cart item not found");
+        }
+    }
+    
+    /**
+     * Clear a guest's cart
+     */
+    public void clearGuestCart(String guestId) {
+        guestCartStore.clear(guestId);
+    }
+    
+    /**
+     * Get the total quantity in a guest's cart
+     */
+    public int getGuestCartItemCount(String guestId) {
+        return guestCartStore.getItemCount(guestId);
+    }
+    
+    /**
+     * Get items, item count and total of a guest's cart
+     */
+    public CartSummary getGuestCartSummary(String guestId) {
+        return summarize(guestCartStore.getQuantities(guestId));
+    }
+    
+    /**
+     * Move a guest's cart into the cart of the user who just logged in. Quantities of
+     * products already in the user's cart are added together, in one batched upsert.
+     * Lines are fitted to available stock like any other add: capped, or dropped when
+     * nothing is left. The guest cart is only removed once the merge has committed.
+     */
+    @Transactional
+    public void mergeGuestCart(String guestId, User user) {
+        if (user == null || user.isGuest()) {
+            return;
+        }
+        Map<Integer, Integer> guestQuantities = guestCartStore.getQuantities(guestId);
+        if (guestQuantities.isEmpty()) {
+            return;
+        }
+        
+        if (cartStore.isEnabled()) {
+            Map<Integer, Integer> current = cartStore.getQuantities(user.getId());
+            // Limit each line to what was checked, so a concurrent add cannot push it past stock
+            fitToStock(guestQuantities, current, user).forEach((productId, quantity) ->
+                    cartStore.addQuantity(user.getId(), productId, quantity,
+                            current.getOrDefault(productId, 0) + quantity));
+            forgetCartSummary();
+        } else {
+            Cart cart = cartRepository.findWithItemsByUserId(user.getId())
+                    .orElseGet(() -> cartRepository.saveAndFlush(new Cart(user)));
+            Map<Integer, Integer> current = new HashMap<>();
+            for (CartItem item : cart.getCartItems()) {
+                current.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+            }
+            Map<Integer, Integer> fitted = fitToStock(guestQuantities, current, user);
+            if (!fitted.isEmpty()) {
+                cartRepository.mergeItems(cart.getCartId(), fitted);
+            }
+            forgetCartSummary();
+            forgetItemCount(user.getId());
+        }
+        
+        TransactionCallbacks.runAfterCommit(() -> guestCartStore.removeMerged(guestId));
+    }
+    
+    /**
+     * Get cart item count for user.
+     * Served from the in-memory counter; on a miss only the stored count column is read.
      */
     public int getCartItemCount(User user) {
         if (user == null || user.isGuest()) {
             return 0;
         }
         
-        Optional<Cart> cartOpt = cartRepository.findByUser(user);
-        return cartOpt.map(Cart::getTotalItems).orElse(0);
+        if (cartStore.isEnabled()) {
+            return cartStore.getItemCount(user.getId());
+        }
+        
+        Integer cached = cartItemCounts.get(user.getId());
+        if (cached != null) {
+            return cached;
+        }
+        
+        Integer stored = cartRepository.findItemCountByUserId(user.getId());
+        if (stored == null) {
+            // No cart, or a cart saved before the count column existed
+            stored = cartRepository.findByUser(user).map(Cart::getTotalItems).orElse(0);
+        }
+        cartItemCounts.putIfAbsent(user.getId(), stored);
+        return stored;
     }
     
     /**
-     * Get cart total for user
+     * Size of the in-memory cart counter
      */
-    public BigDecimal getCartTotal(User user) {
+    public Map<String, Object> getCountCacheStats() {
+        return Map.of("entries", cartItemCounts.size());
+    }
+    
+    /**
+     * Size and eviction counters of the in-memory guest carts
+     */
+    public Map<String, Object> getGuestCartStats() {
+        return guestCartStore.getStats();
+    }
+    
+    /**
+     * Store the cart's new total quantity, and publish it to the in-memory counter
+     * once the surrounding transaction has committed
+     */
+    private void updateItemCount(User user, Cart cart) {
+        int count = cart.getTotalItems();
+        cart.setItemCount(count);
+        forgetCartSummary();
+        publishItemCount(user.getId(), count);
+    }
+    
+    /**
+     * Put a cart's new total quantity in the in-memory counter once the surrounding transaction has committed
+     */
+    private void publishItemCount(Integer userId, int count) {
+        // Drop the entry now so no reader sees the old count after commit, then set it after commit
+        cartItemCounts.remove(userId);
+        TransactionCallbacks.runAfterCommit(() -> cartItemCounts.put(userId, count));
+    }
+    
+    /**
+     * Drop the in-memory counts of carts that were deleted outside this service (abandoned cart cleanup)
+     */
+    public void forgetItemCounts(Collection<Integer> userIds) {
+        userIds.forEach(cartItemCounts::remove);
+    }
+    
+    /**
+     * Drop the in-memory count of a cart whose count column was recalculated in SQL,
+     * so it is read again on next use
+     */
+    private void forgetItemCount(Integer userId) {
+        cartItemCounts.remove(userId);
+        TransactionCallbacks.runAfterCommit(() -> cartItemCounts.remove(userId));
+    }
+    
+    /**
+     * Get cart items, item count and total for user.
+     * Cart, items and products are loaded by one query, at most once per web request.
+     */
+    public CartSummary getCartSummary(User user) {
         if (user == null || user.isGuest()) {
-            return BigDecimal.ZERO;
+            return CartSummary.empty();
         }
         
-        Optional<Cart> cartOpt = cartRepository.findByUser(user);
-        return cartOpt.map(Cart::getTotal).orElse(BigDecimal.ZERO);
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(CART_SUMMARY_ATTR, RequestAttributes.SCOPE_REQUEST)
+                instanceof CachedCartSummary cached && cached.userId().equals(user.getId())) {
+            return cached.summary();
+        }
+        
+        CartSummary summary = cartStore.isEnabled()
+                ? summarize(cartStore.getQuantities(user.getId()))
+                : cartRepository.findWithItemsByUserId(user.getId())
+                        .map(cart -> CartSummary.of(cart.getCartItems()))
+                        .orElse(CartSummary.empty());
+        if (request != null) {
+            request.setAttribute(CART_SUMMARY_ATTR, new CachedCartSummary(user.getId(), summary),
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+        return summary;
+    }
+    
+    /**
+     * Build a summary for an in-memory cart, loading all of its products in one query.
+     * The items are not persisted, and carry the product ID as their cart item ID.
+     */
+    private CartSummary summarize(Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return CartSummary.empty();
+        }
+        Map<Integer, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findWithCategoryByProductIdIn(quantities.keySet())) {
+            productsById.put(product.getProductId(), product);
+        }
+        List<CartItem> items = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                CartItem item = new CartItem(null, product, quantity);
+                item.setCartItemId(productId);
+                items.add(item);
+            }
+        });
+        return CartSummary.of(items);
+    }
+    
+    /**
+     * Get cart total for user
+     */
+    public BigDecimal getCartTotal(User user) {
+        return getCartSummary(user).getTotal();
     }
     
     /**
      * Get cart items for user
      */
-    public java.util.List<CartItem> getCartItems(User user) {
-        if (user == null || user.isGuest()) {
-            return java.util.Collections.emptyList();
+    public List<CartItem> getCartItems(User user) {
+        return getCartSummary(user).getItems();
+    }
+    
+    /**
+     * Drop the summary cached for this request after the cart changed
+     */
+    private void forgetCartSummary() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.removeAttribute(CART_SUMMARY_ATTR, RequestAttributes.SCOPE_REQUEST);
         }
-        
-        Optional<Cart> cartOpt = cartRepository.findByUser(user);
-        return cartOpt.map(Cart::getCartItems).orElse(java.util.Collections.emptyList());
+    }
+    
+    private record CachedCartSummary(Integer userId, CartSummary summary) {
     }
 }
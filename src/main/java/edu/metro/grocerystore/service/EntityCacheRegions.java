@@ -0,0 +1,82 @@
+package edu.metro.grocerystore.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Regions of Hibernate's second-level entity cache, kept in process by Caffeine.
+ * Each region is bounded in entries and evicts by W-TinyLFU, which keeps frequently
+ * read rows over ones that were only read once. Entities opt in with {@code @Cache}
+ * on the class, naming one of these regions.
+ */
+@Component
+public class EntityCacheRegions implements HibernatePropertiesCustomizer {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_CATEGORIES = "product_categories";
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public EntityCacheRegions(@Value("${grocerystore.entity-cache.products.max-size:10000}") long productsMaxSize,
+                              @Value("${grocerystore.entity-cache.categories.max-size:500}") long categoriesMaxSize) {
+        // A manager of its own, so that each application context gets fresh regions
+        this.cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create(getClass().getName() + "@" + Integer.toHexString(hashCode())),
+                        getClass().getClassLoader());
+        cacheManager.createCache(PRODUCTS, regionConfiguration(productsMaxSize));
+        cacheManager.createCache(PRODUCT_CATEGORIES, regionConfiguration(categoriesMaxSize));
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration(long maxSize) {
+        return new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maxSize))
+                // Hibernate caches its own disassembled copy of each row, so no need to copy it again
+                .setStoreByValue(false)
+                .setNativeStatisticsEnabled(true);
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    }
+
+    /**
+     * Size, hit/miss and eviction counts of each region
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String region : new String[]{PRODUCTS, PRODUCT_CATEGORIES}) {
+            Cache<?, ?> cache = cacheManager.getCache(region).unwrap(Cache.class);
+            CacheStats cacheStats = cache.stats();
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("size", cache.estimatedSize());
+            regionStats.put("hits", cacheStats.hitCount());
+            regionStats.put("misses", cacheStats.missCount());
+            regionStats.put("hitRatio", cacheStats.requestCount() == 0 ? 0.0 : cacheStats.hitRate());
+            regionStats.put("evictions", cacheStats.evictionCount());
+            stats.put(region, regionStats);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        cacheManager.close();
+    }
+}
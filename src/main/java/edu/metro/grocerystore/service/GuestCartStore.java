@@ -0,0 +1,153 @@
+package edu.metro.grocerystore.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Carts of visitors who are not logged in, kept only in memory and keyed by HTTP session ID,
+ * so anonymous shopping writes nothing to the database. The store holds a bounded number of
+ * carts and drops the least recently used one when full; each cart is capped in lines too.
+ * A guest cart is merged into the visitor's own when they log in, and removed once that has committed.
+ */
+@Component
+public class GuestCartStore {
+
+    private final int maxCarts;
+    private final int maxLines;
+
+    // Session ID -> (product ID -> quantity), in access order for LRU eviction
+    private final LinkedHashMap<String, Map<Integer, Integer>> carts;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+
+    @Autowired
+    public GuestCartStore(@Value("${grocerystore.guest-cart.max-carts:10000}") int maxCarts,
+                          @Value("${grocerystore.guest-cart.max-lines:50}") int maxLines) {
+        this.maxCarts = maxCarts;
+        this.maxLines = maxLines;
+        this.carts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Integer, Integer>> eldest) {
+                if (size() > GuestCartStore.this.maxCarts) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Product ID -> quantity in the guest's cart, in the order the products were added
+     */
+    public synchronized Map<Integer, Integer> getQuantities(String guestId) {
+        Map<Integer, Integer> cart = carts.get(guestId);
+        return cart == null ? Map.of() : new LinkedHashMap<>(cart);
+    }
+
+    /**
+     * Total quantity across the guest's cart
+     */
+    public synchronized int getItemCount(String guestId) {
+        Map<Integer, Integer> cart = carts.get(guestId);
+        return cart == null ? 0 : cart.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Add to the quantity of one product, unless the result would exceed a limit
+     * @return false (and no change) when the new quantity would be above maxQuantity
+     */
+    public synchronized boolean addQuantity(String guestId, Integer productId, int quantity, int maxQuantity) {
+        Map<Integer, Integer> cart = carts.getOrDefault(guestId, Map.of());
+        int newQuantity = cart.getOrDefault(productId, 0) + quantity;
+        if (newQuantity > maxQuantity) {
+            return false;
+        }
+        if (!cart.containsKey(productId) && cart.size() >= maxLines) {
+            throw new IllegalArgumentException("Your cart is full. Please log in to add more products.");
+        }
+        cartFor(guestId).put(productId, newQuantity);
+        return true;
+    }
+
+    /**
+     * Add several products to the guest's cart, all or none: the line cap and every
+     * limit are checked before any line is applied
+     * @param limits product ID -> most units the cart may hold
+     * @return false (and no change) when any new quantity would be above its limit
+     */
+    public synchronized boolean addAll(String guestId, Map<Integer, Integer> additions, Map<Integer, Integer> limits) {
+        Map<Integer, Integer> cart = carts.getOrDefault(guestId, Map.of());
+        long newLines = additions.keySet().stream().filter(productId -> !cart.containsKey(productId)).count();
+        if (cart.size() + newLines > maxLines) {
+            throw new IllegalArgumentException("Your cart is full. Please log in to add more products.");
+        }
+        for (Map.Entry<Integer, Integer> addition : additions.entrySet()) {
+            if (cart.getOrDefault(addition.getKey(), 0) + addition.getValue() > limits.get(addition.getKey())) {
+                return false;
+            }
+        }
+        Map<Integer, Integer> target = cartFor(guestId);
+        additions.forEach((productId, quantity) -> target.merge(productId, quantity, Integer::sum));
+        return true;
+    }
+
+    /**
+     * Set the quantity of a product already in the guest's cart (0 removes it)
+     * @return false when the product is not in the cart
+     */
+    public synchronized boolean setQuantity(String guestId, Integer productId, int quantity) {
+        Map<Integer, Integer> cart = carts.get(guestId);
+        if (cart == null || !cart.containsKey(productId)) {
+            return false;
+        }
+        if (quantity <= 0) {
+            cart.remove(productId);
+        } else {
+            cart.put(productId, quantity);
+        }
+        return true;
+    }
+
+    /**
+     * Empty the guest's cart
+     */
+    public synchronized void clear(String guestId) {
+        carts.remove(guestId);
+    }
+
+    /**
+     * Remove a guest's cart once it has been merged into a customer's cart at login
+     */
+    public synchronized void removeMerged(String guestId) {
+        Map<Integer, Integer> cart = carts.remove(guestId);
+        if (cart != null && !cart.isEmpty()) {
+            merges.increment();
+        }
+    }
+
+    /**
+     * The guest's cart, created only once an add has passed its checks, so a rejected add
+     * never takes a slot and evicts another guest's cart
+     */
+    private Map<Integer, Integer> cartFor(String guestId) {
+        return carts.computeIfAbsent(guestId, id -> new LinkedHashMap<>());
+    }
+
+    /**
+     * Size and eviction counters
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("carts", carts.size());
+        stats.put("maxCarts", maxCarts);
+        stats.put("evictions", evictions.sum());
+        stats.put("merges", merges.sum());
+        return stats;
+    }
+}
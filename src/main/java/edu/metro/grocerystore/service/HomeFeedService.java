@@ -0,0 +1,175 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.CategoryHighlight;
+import edu.metro.grocerystore.DTO.CategorySummary;
+import edu.metro.grocerystore.DTO.HomeFeed;
+import edu.metro.grocerystore.DTO.ProductCard;
+import edu.metro.grocerystore.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Product sections of the home page: featured best sellers, a few products per category
+ * and the newest arrivals. Each section has a fixed size, so building the feed costs the
+ * same however large the catalog grows. The feed is built in the background and requests
+ * only read the current copy.
+ */
+@Service
+public class HomeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeFeedService.class);
+
+    private final ProductRepository productRepository;
+    private final ProductCategoryService productCategoryService;
+    private final int featuredSize;
+    private final int categoryHighlightSize;
+    private final int newArrivalsSize;
+    private final long maxAgeMs;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile HomeFeed feed;
+    private volatile boolean stale = true;
+    private volatile long lastBuildMs = 0;
+
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder served = new LongAdder();
+
+    @Autowired
+    public HomeFeedService(ProductRepository productRepository,
+                           ProductCategoryService productCategoryService,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${grocerystore.home-feed.featured-size:12}") int featuredSize,
+                           @Value("${grocerystore.home-feed.category-highlight-size:4}") int categoryHighlightSize,
+                           @Value("${grocerystore.home-feed.new-arrivals-size:12}") int newArrivalsSize,
+                           @Value("${grocerystore.home-feed.max-age-ms:300000}") long maxAgeMs) {
+        this.productRepository = productRepository;
+        this.productCategoryService = productCategoryService;
+        this.featuredSize = featuredSize;
+        this.categoryHighlightSize = categoryHighlightSize;
+        this.newArrivalsSize = newArrivalsSize;
+        this.maxAgeMs = maxAgeMs;
+        // rebuild is called from within this bean, past the proxy, so @Transactional would not apply
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Build the feed once startup (including sample data) has finished
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Flag the feed for rebuilding after a product was created, changed or removed
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Rebuild when products changed, or periodically so stock and sales figures follow along
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.home-feed.check-interval-ms:30000}",
+               initialDelayString = "${grocerystore.home-feed.check-interval-ms:30000}")
+    public void refreshIfNeeded() {
+        HomeFeed current = feed;
+        if (stale || current == null || System.currentTimeMillis() - current.getBuiltAt() > maxAgeMs) {
+            rebuild();
+        }
+    }
+
+    /**
+     * The current feed. Only builds it here if a request arrives before the first background build.
+     */
+    public HomeFeed getFeed() {
+        HomeFeed current = feed;
+        if (current == null) {
+            rebuild();
+            current = feed;
+        }
+        served.increment();
+        return current;
+    }
+
+    /**
+     * Rebuild the feed in one read-only transaction
+     */
+    public synchronized void rebuild() {
+        readOnlyTransaction.executeWithoutResult(status -> build());
+    }
+
+    /**
+     * Build the feed: a bounded query per section, and one per category
+     */
+    private void build() {
+        long start = System.currentTimeMillis();
+        stale = false;
+
+        List<ProductCard> newArrivals = productRepository.findNewestCards(PageRequest.of(0, newArrivalsSize));
+        List<ProductCard> featured = bestSellers(null, featuredSize, newArrivals);
+
+        List<CategoryHighlight> highlights = new ArrayList<>();
+        for (CategorySummary category : productCategoryService.getAllCategories()) {
+            List<ProductCard> newestInCategory = productRepository.findActiveCardsByCategoryId(category.getCategoryId(),
+                    PageRequest.of(0, categoryHighlightSize, Sort.by("productId").descending())).getContent();
+            List<ProductCard> products = bestSellers(category.getCategoryId(), categoryHighlightSize, newestInCategory);
+            if (!products.isEmpty()) {
+                highlights.add(new CategoryHighlight(category.getCategoryId(), category.getCategoryName(), products));
+            }
+        }
+
+        feed = new HomeFeed(featured, highlights, newArrivals, System.currentTimeMillis());
+        lastBuildMs = System.currentTimeMillis() - start;
+        builds.increment();
+        logger.debug("Home feed built: {} featured, {} categories, {} new arrivals in {} ms",
+                featured.size(), highlights.size(), newArrivals.size(), lastBuildMs);
+    }
+
+    /**
+     * Best sellers, topped up from the fallback list when too few products have sold yet
+     */
+    private List<ProductCard> bestSellers(Integer categoryId, int limit, List<ProductCard> fallback) {
+        List<ProductCard> products = new ArrayList<>(productRepository.findBestSellingCards(categoryId, PageRequest.of(0, limit)));
+        for (ProductCard card : fallback) {
+            if (products.size() >= limit) {
+                break;
+            }
+            if (products.stream().noneMatch(p -> p.getProductId().equals(card.getProductId()))) {
+                products.add(card);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Age and size of the current feed, and how often it was built and served
+     */
+    public Map<String, Object> getStats() {
+        HomeFeed current = feed;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("builtAt", current == null ? 0 : current.getBuiltAt());
+        stats.put("lastBuildMs", lastBuildMs);
+        stats.put("builds", builds.sum());
+        stats.put("served", served.sum());
+        stats.put("categories", current == null ? 0 : current.getCategoryHighlights().size());
+        return stats;
+    }
+}
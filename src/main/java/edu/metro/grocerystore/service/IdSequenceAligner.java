@@ -0,0 +1,66 @@
+package edu.metro.grocerystore.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the ID sequences past rows that already exist. Those tables used identity
+ * columns before their entities switched to pooled sequences, and a sequence created
+ * by the schema update starts at 1. Runs once the schema is up to date and before the
+ * application writes anything.
+ */
+@Component
+public class IdSequenceAligner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    // Must match allocationSize of the entities' @SequenceGenerator
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    // Table, ID column and sequence of every entity using a pooled sequence
+    private static final List<String[]> SEQUENCES = List.of(
+            new String[]{"products", "product_id", "products_seq"},
+            new String[]{"orders", "order_id", "orders_seq"},
+            new String[]{"order_items", "order_item_id", "order_items_seq"},
+            new String[]{"carts", "cart_id", "carts_seq"},
+            new String[]{"cart_items", "cart_item_id", "cart_items_seq"},
+            new String[]{"stock_reservations", "reservation_id", "stock_reservations_seq"}
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Taking the EntityManagerFactory makes sure Hibernate has created the sequences first
+     */
+    @Autowired
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        for (String[] sequence : SEQUENCES) {
+            Integer maxId = jdbcTemplate.queryForObject(
+                    "SELECT MAX(" + sequence[1] + ") FROM " + sequence[0], Integer.class);
+            List<Long> nextValue = jdbcTemplate.queryForList(
+                    "SELECT base_value FROM information_schema.sequences WHERE sequence_name = ?",
+                    Long.class, sequence[2]);
+            if (maxId == null || nextValue.isEmpty()) {
+                continue;
+            }
+            // The pooled optimizer hands out the block of IDs just below each value it reads
+            long restartWith = (long) maxId + ID_ALLOCATION_SIZE;
+            if (nextValue.get(0) < restartWith) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence[2] + " RESTART WITH " + restartWith);
+                logger.info("Moved {} to {} past existing {} rows", sequence[2], restartWith, sequence[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package edu.metro.grocerystore.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of requests submitted with an idempotency key, so a
+ * double-click or browser retry gets the original result instead of running again.
+ * A repeat that arrives while the first request is still running waits for it.
+ * Failed requests are forgotten so they can be retried. Entries expire after a TTL
+ * and the store is capped in size, oldest first. Only per-key atomic map operations
+ * are used, so unrelated requests never wait on each other.
+ */
+@Component
+public class IdempotencyKeyStore {
+
+    private final long ttlMs;
+    private final int maxEntries;
+    private final long waitMs;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Keys in insertion order; with a fixed TTL this is also expiry order
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder replays = new LongAdder();
+
+    @Autowired
+    public IdempotencyKeyStore(@Value("${grocerystore.idempotency.ttl-ms:3600000}") long ttlMs,
+                               @Value("${grocerystore.idempotency.max-entries:10000}") int maxEntries,
+                               @Value("${grocerystore.idempotency.wait-ms:30000}") long waitMs) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.waitMs = waitMs;
+    }
+
+    /**
+     * Run the action once per key; repeats with the same key return the first result
+     * @param key idempotency key, already scoped to the caller
+     * @param action work to run on the first submission
+     * @return the action's result, possibly from an earlier submission
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> action) {
+        long now = System.currentTimeMillis();
+        Entry created = new Entry(now + ttlMs);
+        Entry existing = entries.compute(key, (k, current) ->
+                current == null || current.expiresAt <= now ? created : current);
+
+        if (existing != created) {
+            replays.increment();
+            return (T) await(existing.result);
+        }
+
+        insertionOrder.add(key);
+        evict(now);
+        try {
+            T result = action.get();
+            created.result.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Forget failures, Errors included, so the customer can try again with the same key
+            // and waiting repeats are released; the retry queues the key again, so give up
+            // this attempt's place in the eviction order
+            if (entries.remove(key, created)) {
+                insertionOrder.remove(key);
+            }
+            created.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Number of stored keys and replayed submissions
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("replays", replays.sum());
+        return stats;
+    }
+
+    private Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("The original request is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request");
+        }
+    }
+
+    /**
+     * Drop expired entries, and the oldest ones while over capacity
+     */
+    private void evict(long now) {
+        String oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            Entry entry = entries.get(oldest);
+            boolean stale = entry == null || entry.expiresAt <= now;
+            if (!stale && entries.size() <= maxEntries) {
+                return;
+            }
+            if (insertionOrder.remove(oldest) && entry != null) {
+                entries.remove(oldest, entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long expiresAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.KeysetPage;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Converts keyset positions to and from the opaque cursor strings handed to clients.
+ * A cursor holds the sort key values of the last row of a page, each tagged with its type.
+ */
+final class KeysetCursors {
+
+    private static final String MODEL_PACKAGE = "edu.metro.grocerystore.model.";
+
+    private KeysetCursors() {
+    }
+
+    /**
+     * Sort key values of a row: the sort field, then the ID as tie-breaker so every row has a unique position
+     */
+    static Map<String, Object> sortKeys(String sortBy, Object sortValue, String idProperty, Object id) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortBy, sortValue);
+        keys.put(idProperty, id);
+        return keys;
+    }
+
+    /**
+     * @param cursor cursor from a previous page, or null/blank for the first page
+     * @return sort key values of the last row of the previous page, or empty for the first page
+     */
+    static Map<String, Object> decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Map.of();
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (String entry : decoded.split("&")) {
+            String[] parts = entry.split("=", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            keys.put(parts[0], decodeValue(parts[1], unescape(parts[2])));
+        }
+        return keys;
+    }
+
+    /**
+     * One page from rows fetched with a limit of size + 1: the extra row only shows that
+     * there is a next page, and the last row kept gives its cursor
+     */
+    static <T> KeysetPage<T> toPage(List<T> rows, int size, Function<T, Map<String, Object>> sortKeys) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one");
+        }
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = List.copyOf(rows.subList(0, size));
+        return new KeysetPage<>(content, encode(sortKeys.apply(content.get(size - 1))));
+    }
+
+    static String encode(Map<String, Object> keys) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, Object> key : keys.entrySet()) {
+            if (!encoded.isEmpty()) {
+                encoded.append('&');
+            }
+            encoded.append(key.getKey()).append('=').append(encodeValue(key.getValue()));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encoded.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encodeValue(Object value) {
+        if (value == null) {
+            return "N=";
+        } else if (value instanceof String s) {
+            return "S=" + escape(s);
+        } else if (value instanceof Integer i) {
+            return "I=" + i;
+        } else if (value instanceof Long l) {
+            return "L=" + l;
+        } else if (value instanceof BigDecimal d) {
+            return "D=" + d.toPlainString();
+        } else if (value instanceof Instant t) {
+            return "T=" + t;
+        } else if (value instanceof Boolean b) {
+            return "B=" + b;
+        } else if (value instanceof Enum<?> e) {
+            return "E=" + escape(e.getDeclaringClass().getName() + "#" + e.name());
+        }
+        throw new IllegalArgumentException("Cannot paginate by a value of type " + value.getClass().getSimpleName());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object decodeValue(String type, String value) {
+        try {
+            switch (type) {
+                case "N": return null;
+                case "S": return value;
+                case "I": return Integer.valueOf(value);
+                case "L": return Long.valueOf(value);
+                case "D": return new BigDecimal(value);
+                case "T": return Instant.parse(value);
+                case "B": return Boolean.valueOf(value);
+                case "E": {
+                    String[] parts = value.split("#", 2);
+                    // Only the application's own enums may be named in a cursor
+                    if (parts.length != 2 || !parts[0].startsWith(MODEL_PACKAGE)) {
+                        break;
+                    }
+                    Class<?> enumType = Class.forName(parts[0]);
+                    if (enumType.isEnum()) {
+                        return Enum.valueOf((Class<? extends Enum>) enumType, parts[1]);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        throw new IllegalArgumentException("Invalid page cursor");
+    }
+
+    private static String escape(String value) {
+        return value.replace("%", "%25").replace("&", "%26");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("%26", "&").replace("%25", "%");
+    }
+}
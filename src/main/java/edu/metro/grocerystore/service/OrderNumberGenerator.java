@@ -0,0 +1,94 @@
+package edu.metro.grocerystore.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, time-ordered order numbers without locking.
+ * Each number packs milliseconds since a fixed epoch, the node ID and a
+ * per-millisecond sequence into one long (41 + 10 + 12 bits), written in
+ * fixed-width base 36 after the "ORD-" prefix, e.g. ORD-0DP3K9Z4Q1B7C.
+ * Numbers from different nodes cannot collide as long as each node has its own ID.
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    public static final String PREFIX = "ORD-";
+    // 2025-01-01T00:00:00Z; 41 bits of milliseconds from here last until 2094
+    static final long EPOCH_MILLIS = 1735689600000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // Long.MAX_VALUE in base 36 is 13 characters; padding keeps numbers sortable as text
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeId;
+    // Last issued (millis << SEQUENCE_BITS | sequence), advanced by compare-and-set
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public OrderNumberGenerator(@Value("${grocerystore.order-number.node-id:-1}") int nodeId) {
+        if (nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order number node ID must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId < 0 ? deriveNodeId() : nodeId;
+        logger.info("Order numbers use node ID {}", this.nodeId);
+    }
+
+    /**
+     * Next order number, e.g. ORD-0DP3K9Z4Q1B7C
+     */
+    public String next() {
+        String encoded = Long.toString(nextId(), 36).toUpperCase(Locale.ROOT);
+        return PREFIX + "0".repeat(ENCODED_LENGTH - encoded.length()) + encoded;
+    }
+
+    /**
+     * Next raw ID. When the 4096 sequence values of a millisecond are used up, or the
+     * clock moves backwards, the ID borrows from the following millisecond instead of waiting.
+     */
+    long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        long previous;
+        long next;
+        do {
+            previous = lastState.get();
+            long lastMillis = previous >>> SEQUENCE_BITS;
+            next = now > lastMillis ? now << SEQUENCE_BITS : previous + 1;
+        } while (!lastState.compareAndSet(previous, next));
+
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Fallback node ID from host name and process ID, for when none is configured.
+     * Distinct instances should set grocerystore.order-number.node-id explicitly.
+     */
+    private static long deriveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        String identity = host + "/" + ManagementFactory.getRuntimeMXBean().getName();
+        return (identity.hashCode() & Integer.MAX_VALUE) % (MAX_NODE_ID + 1);
+    }
+}
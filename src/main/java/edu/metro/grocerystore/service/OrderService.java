@@ -1,40 +1,66 @@
 package edu.metro.grocerystore.service;
 
+import edu.metro.grocerystore.DTO.KeysetPage;
+import edu.metro.grocerystore.DTO.OrderSummary;
 import edu.metro.grocerystore.model.*;
 import edu.metro.grocerystore.repository.OrderItemRepository;
 import edu.metro.grocerystore.repository.OrderRepository;
 import edu.metro.grocerystore.repository.ProductRepository;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class OrderService {
 
+    // Fields order listings can be sorted by, with the order list row value each sorts on
+    private static final Map<String, Function<OrderSummary, Object>> SUMMARY_SORT_KEYS = Map.of(
+        "createdAt", OrderSummary::getCreatedAt,
+        "orderNumber", OrderSummary::getOrderNumber,
+        "totalAmount", OrderSummary::getTotalAmount,
+        "orderStatus", OrderSummary::getOrderStatus,
+        "orderId", OrderSummary::getOrderId);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final CartService cartService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductService productService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final StockReservationService stockReservationService;
 
     @Autowired
     public OrderService(OrderRepository orderRepository, 
                        OrderItemRepository orderItemRepository,
                        ProductRepository productRepository,
-                       CartService cartService) {
+                       CartService cartService,
+                       ProductSearchIndex productSearchIndex,
+                       ProductService productService,
+                       OrderNumberGenerator orderNumberGenerator,
+                       StockReservationService stockReservationService) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.productRepository = productRepository;
         this.cartService = cartService;
+        this.productSearchIndex = productSearchIndex;
+        this.productService = productService;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.stockReservationService = stockReservationService;
     }
 
     /**
@@ -42,28 +68,36 @@ public class OrderService {
      */
     @Transactional
     public Order createOrderFromCart(User user, String storeLocation) {
+        return createOrderFromCart(user, storeLocation, null);
+    }
+
+    /**
+     * Create order from cart, with the customer's notes saved as part of the same insert
+     */
+    @Transactional
+    public Order createOrderFromCart(User user, String storeLocation, String notes) {
         if (user == null || user.isGuest()) {
             throw new IllegalArgumentException("User must be logged in to create an order");
         }
 
-        Cart cart = cartService.getOrCreateCart(user);
+        List<CartItem> cartItems = cartService.getCartItems(user);
         
-        if (cart.getCartItems().isEmpty()) {
+        if (cartItems.isEmpty()) {
             throw new IllegalArgumentException("Cart is empty");
         }
 
         // Create new order
-        Order order = new Order(user, OrderStatus.ACTIVE, storeLocation);
+        Order order = new Order(user, OrderStatus.ACTIVE, storeLocation, orderNumberGenerator.next());
+        if (notes != null && !notes.trim().isEmpty()) {
+            order.setNotes(notes);
+        }
+        Map<Integer, Integer> quantitiesByProductId = new LinkedHashMap<>();
+        Map<Integer, Product> productsById = new HashMap<>();
         
         // Convert cart items to order items
-        for (CartItem cartItem : cart.getCartItems()) {
+        for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
             
-            // Check stock availability
-            if (product.getQuantity() < cartItem.getQuantity()) {
-                throw new IllegalArgumentException("Insufficient stock for product: " + product.getName());
-            }
-            
             OrderItem orderItem = new OrderItem(
                 order,
                 product,
@@ -72,21 +106,41 @@ public class OrderService {
             );
             
             order.addOrderItem(orderItem);
-            
-            // Reduce stock
-            product.setQuantity(product.getQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+            quantitiesByProductId.merge(product.getProductId(), cartItem.getQuantity(), Integer::sum);
+            productsById.put(product.getProductId(), product);
+        }
+        
+        // Reduce stock in one batch; the database checks availability, so concurrent checkouts cannot oversell.
+        // Stock other customers hold at checkout must stay behind; the user's own hold is theirs to take.
+        Map<Integer, Integer> reservedByOthers = stockReservationService.getHeldByOthers(user, quantitiesByProductId.keySet());
+        List<Integer> insufficient = productRepository.decrementStockIfAvailable(quantitiesByProductId, reservedByOthers);
+        if (!insufficient.isEmpty()) {
+            throw new IllegalArgumentException("Insufficient stock for product: " + productsById.get(insufficient.get(0)).getName());
+        }
+        Map<Integer, Integer> newStock = new HashMap<>();
+        for (Object[] row : productRepository.findQuantitiesByProductIdIn(quantitiesByProductId.keySet())) {
+            newStock.put((Integer) row[0], (Integer) row[1]);
         }
+        publishStock(newStock);
         
         // Save order
         Order savedOrder = orderRepository.save(order);
         
-        // Clear cart
+        // Clear cart, and drop the checkout hold once the order that consumes it has committed
         cartService.clearCart(user);
+        TransactionCallbacks.runAfterCommit(() -> stockReservationService.release(user));
         
         return savedOrder;
     }
 
+    /**
+     * Put new stock levels in the search index once the surrounding transaction has committed,
+     * so a rolled back order, cancellation or failed retry attempt never shows up as changed stock
+     */
+    private void publishStock(Map<Integer, Integer> stockByProductId) {
+        TransactionCallbacks.runAfterCommit(() -> stockByProductId.forEach(productSearchIndex::updateStock));
+    }
+
     /**
      * Get order by ID
      */
@@ -94,6 +148,13 @@ public class OrderService {
         return orderRepository.findById(orderId);
     }
 
+    /**
+     * Get order by ID with its customer, items and products loaded in one query (order detail page)
+     */
+    public Optional<Order> getOrderWithItems(Integer orderId) {
+        return orderRepository.findWithItemsByOrderId(orderId);
+    }
+
     /**
      * Get order by order number
      */
@@ -104,6 +165,7 @@ public class OrderService {
     /**
      * Get all orders (for admin/employee)
      */
+    @Transactional(readOnly = true)
     public Page<Order> getAllOrders(int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") 
             ? Sort.by(sortBy).descending() 
@@ -115,6 +177,7 @@ public class OrderService {
     /**
      * Get orders by user
      */
+    @Transactional(readOnly = true)
     public Page<Order> getOrdersByUser(User user, int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") 
             ? Sort.by(sortBy).descending() 
@@ -123,9 +186,82 @@ public class OrderService {
         return orderRepository.findByUser(user, pageable);
     }
 
+    /**
+     * Get order list rows as projections, so a page costs one query plus its count.
+     * Each filter combination has its own query, so only the filters given are applied.
+     * @param user only this customer's orders, or null for all orders
+     * @param status status filter (optional)
+     * @param startDate first day of the date filter (optional, needs endDate)
+     * @param endDate last day of the date filter (optional, needs startDate)
+     * @param searchTerm only orders containing a product whose name matches (optional,
+     *                   not combined with status or dates)
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getOrderSummaries(User user, OrderStatus status, LocalDate startDate, LocalDate endDate,
+                                                String searchTerm, int page, int size, String sortBy, String sortDirection) {
+        Sort sort = sortDirection.equalsIgnoreCase("DESC") 
+            ? Sort.by(sortBy).descending() 
+            : Sort.by(sortBy).ascending();
+        Pageable pageable = PageRequest.of(page, size, sort);
+        
+        if (searchTerm != null) {
+            return user == null
+                ? orderRepository.findOrderSummariesByProductName(searchTerm, pageable)
+                : orderRepository.findOrderSummariesByUserAndProductName(user, searchTerm, pageable);
+        }
+        if (startDate != null && endDate != null) {
+            Instant start = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+            Instant end = endDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+            if (status != null) {
+                return user == null
+                    ? orderRepository.findOrderSummariesByDateRangeAndStatus(start, end, status, pageable)
+                    : orderRepository.findOrderSummariesByUserDateRangeAndStatus(user, start, end, status, pageable);
+            }
+            return user == null
+                ? orderRepository.findOrderSummariesByDateRange(start, end, pageable)
+                : orderRepository.findOrderSummariesByUserAndDateRange(user, start, end, pageable);
+        }
+        if (status != null) {
+            return user == null
+                ? orderRepository.findOrderSummariesByStatus(status, pageable)
+                : orderRepository.findOrderSummariesByUserAndStatus(user, status, pageable);
+        }
+        return user == null
+            ? orderRepository.findOrderSummaries(pageable)
+            : orderRepository.findOrderSummariesByUser(user, pageable);
+    }
+
+    /**
+     * Get order list rows with keyset pagination: each page is one query that seeks past the
+     * cursor instead of using OFFSET, and no count query runs. Takes the same filters as
+     * getOrderSummaries.
+     * @param user only this customer's orders, or null for all orders
+     * @param cursor cursor returned with the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<OrderSummary> scrollOrderSummaries(User user, OrderStatus status, LocalDate startDate, LocalDate endDate,
+                                                         String searchTerm, String cursor, int size, String sortBy, String sortDirection) {
+        Function<OrderSummary, Object> sortKey = SUMMARY_SORT_KEYS.get(sortBy);
+        if (sortKey == null) {
+            throw new IllegalArgumentException("Cannot sort orders by " + sortBy);
+        }
+        Instant start = null;
+        Instant end = null;
+        if (searchTerm == null && startDate != null && endDate != null) {
+            start = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+            end = endDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        }
+
+        List<OrderSummary> rows = orderRepository.scrollOrderSummaries(user, searchTerm == null ? status : null,
+            start, end, searchTerm, sortBy, sortDirection, KeysetCursors.decode(cursor), size + 1);
+        return KeysetCursors.toPage(rows, size, summary -> KeysetCursors.sortKeys(
+            sortBy, sortKey.apply(summary), "orderId", summary.getOrderId()));
+    }
+
     /**
      * Get orders by status (for admin/employee)
      */
+    @Transactional(readOnly = true)
     public Page<Order> getOrdersByStatus(OrderStatus status, int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") 
             ? Sort.by(sortBy).descending() 
@@ -137,6 +273,7 @@ public class OrderService {
     /**
      * Get orders by user and status
      */
+    @Transactional(readOnly = true)
     public Page<Order> getOrdersByUserAndStatus(User user, OrderStatus status, int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") 
             ? Sort.by(sortBy).descending() 
@@ -148,6 +285,7 @@ public class OrderService {
     /**
      * Get orders by date range (for admin/employee)
      */
+    @Transactional(readOnly = true)
     public Page<Order> getOrdersByDateRange(LocalDate startDate, LocalDate endDate, int page, int size, String sortBy, String sortDirection) {
         Instant start = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
         Instant end = endDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
@@ -163,6 +301,7 @@ public class OrderService {
     /**
      * Get orders by user and date range
      */
+    @Transactional(readOnly = true)
     public Page<Order> getOrdersByUserAndDateRange(User user, LocalDate startDate, LocalDate endDate, int page, int size, String sortBy, String sortDirection) {
         Instant start = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
         Instant end = endDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
@@ -178,6 +317,7 @@ public class OrderService {
     /**
      * Search orders by product name (for admin/employee)
      */
+    @Transactional(readOnly = true)
     public Page<Order> searchOrdersByProductName(String searchTerm, int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") 
             ? Sort.by(sortBy).descending() 
@@ -189,6 +329,7 @@ public class OrderService {
     /**
      * Search orders by user and product name
      */
+    @Transactional(readOnly = true)
     public Page<Order> searchOrdersByUserAndProductName(User user, String searchTerm, int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") 
             ? Sort.by(sortBy).descending() 
@@ -230,10 +371,13 @@ public class OrderService {
     }
 
     /**
-     * Cancel order
+     * Cancel order. Retried as a whole if a product's stock was changed concurrently.
      */
-    @Transactional
     public Order cancelOrder(Integer orderId, User user) {
+        return productService.withStockRetry(() -> cancelOrderOnce(orderId, user));
+    }
+
+    private Order cancelOrderOnce(Integer orderId, User user) {
         Order order = orderRepository.findById(orderId)
             .orElseThrow(() -> new IllegalArgumentException("Order not found"));
         
@@ -248,23 +392,31 @@ public class OrderService {
         }
         
         // Restore stock for all items
+        Map<Integer, Integer> newStock = new HashMap<>();
         for (OrderItem item : order.getOrderItems()) {
             Product product = item.getProduct();
             product.setQuantity(product.getQuantity() + item.getQuantity());
-            productRepository.save(product);
+            newStock.put(product.getProductId(), product.getQuantity());
         }
         
         order.setOrderStatus(OrderStatus.CANCELLED);
         order.setUpdatedAt(Instant.now());
         
-        return orderRepository.save(order);
+        // Flush here so a version conflict on any product fails this attempt
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        publishStock(newStock);
+        return savedOrder;
     }
 
     /**
-     * Reorder - creates a new order based on an existing order
+     * Reorder - creates a new order based on an existing order.
+     * Retried as a whole if a product's stock was changed concurrently.
      */
-    @Transactional
     public Order reorder(Integer orderId, User user, String storeLocation) {
+        return productService.withStockRetry(() -> reorderOnce(orderId, user, storeLocation));
+    }
+
+    private Order reorderOnce(Integer orderId, User user, String storeLocation) {
         Order existingOrder = orderRepository.findById(orderId)
             .orElseThrow(() -> new IllegalArgumentException("Order not found"));
         
@@ -274,9 +426,10 @@ public class OrderService {
         }
         
         // Create new order
-        Order newOrder = new Order(user, OrderStatus.ACTIVE, storeLocation);
+        Order newOrder = new Order(user, OrderStatus.ACTIVE, storeLocation, orderNumberGenerator.next());
         
         // Copy items from existing order
+        Map<Integer, Integer> newStock = new HashMap<>();
         for (OrderItem existingItem : existingOrder.getOrderItems()) {
             Product product = existingItem.getProduct();
             
@@ -285,19 +438,20 @@ public class OrderService {
                 continue; // Skip unavailable products
             }
             
-            // Check stock
-            if (product.getQuantity() < existingItem.getQuantity()) {
+            // Check stock, leaving behind what other customers hold at checkout
+            int available = stockReservationService.getAvailableToSell(product, user);
+            if (available < existingItem.getQuantity()) {
                 // Add what's available
-                if (product.getQuantity() > 0) {
+                if (available > 0) {
                     OrderItem newItem = new OrderItem(
                         newOrder,
                         product,
-                        product.getQuantity(),
+                        available,
                         product.getPrice()
                     );
                     newOrder.addOrderItem(newItem);
-                    product.setQuantity(0);
-                    productRepository.save(product);
+                    product.setQuantity(product.getQuantity() - available);
+                    newStock.put(product.getProductId(), product.getQuantity());
                 }
             } else {
                 OrderItem newItem = new OrderItem(
@@ -308,7 +462,7 @@ public class OrderService {
                 );
                 newOrder.addOrderItem(newItem);
                 product.setQuantity(product.getQuantity() - existingItem.getQuantity());
-                productRepository.save(product);
+                newStock.put(product.getProductId(), product.getQuantity());
             }
         }
         
@@ -316,12 +470,16 @@ public class OrderService {
             throw new IllegalArgumentException("None of the products from the original order are currently available");
         }
         
-        return orderRepository.save(newOrder);
+        // Flush here so a version conflict on any product fails this attempt
+        Order savedOrder = orderRepository.saveAndFlush(newOrder);
+        publishStock(newStock);
+        return savedOrder;
     }
 
     /**
      * Get order count by status
      */
+    @Transactional(readOnly = true)
     public long getOrderCountByStatus(OrderStatus status) {
         return orderRepository.countByOrderStatus(status);
     }
@@ -329,6 +487,7 @@ public class OrderService {
     /**
      * Get order count by user
      */
+    @Transactional(readOnly = true)
     public long getOrderCountByUser(User user) {
         return orderRepository.countByUser(user);
     }
@@ -0,0 +1,302 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.AutocompleteSuggestion;
+import edu.metro.grocerystore.DTO.CategorySummary;
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.repository.OrderItemRepository;
+import edu.metro.grocerystore.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prefix trie of active product names and category names for type-ahead search.
+ * Every node stores its best suggestions (ranked by units sold), so a lookup is a
+ * walk down the typed prefix with no further work. The trie is immutable and is
+ * swapped out whole when it is rebuilt.
+ */
+@Component
+public class ProductAutocompleteIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAutocompleteIndex.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    // Upper bounds (microseconds) of the lookup latency histogram buckets
+    private static final long[] LATENCY_BUCKETS_MICROS = {50, 100, 250, 500, 1000, 2000, 5000, Long.MAX_VALUE};
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductCategoryService productCategoryService;
+    private final long rankingRefreshMs;
+
+    private volatile Node root = new Node(NO_KEYS, NO_CHILDREN, new AutocompleteSuggestion[0]);
+    private volatile boolean stale = true;
+    private volatile long lastBuiltAt = 0;
+    private volatile long nodeCount = 0;
+    private volatile long suggestionCount = 0;
+    private volatile long estimatedBytes = 0;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCY_BUCKETS_MICROS.length];
+
+    @Autowired
+    public ProductAutocompleteIndex(ProductRepository productRepository,
+                                    OrderItemRepository orderItemRepository,
+                                    ProductCategoryService productCategoryService,
+                                    @Value("${grocerystore.autocomplete.ranking-refresh-ms:600000}") long rankingRefreshMs) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.productCategoryService = productCategoryService;
+        this.rankingRefreshMs = rankingRefreshMs;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Build the trie once startup (including sample data) has finished
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Flag the trie for rebuilding after a product was created, renamed or (de)activated
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Rebuild when products changed, or periodically so rankings follow recent sales
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.autocomplete.check-interval-ms:30000}",
+               initialDelayString = "${grocerystore.autocomplete.check-interval-ms:30000}")
+    public void refreshIfNeeded() {
+        if (stale || System.currentTimeMillis() - lastBuiltAt > rankingRefreshMs) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the trie from active products, categories and order history
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        stale = false;
+
+        Map<Integer, Long> unitsSold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            unitsSold.put((Integer) row[0], ((Number) row[1]).longValue());
+        }
+
+        BuilderNode builder = new BuilderNode();
+        Map<Integer, Long> unitsSoldByCategory = new HashMap<>();
+        long suggestions = 0;
+
+        for (Product product : productRepository.findByIsActiveTrue()) {
+            long sold = unitsSold.getOrDefault(product.getProductId(), 0L);
+            if (product.getCategory() != null) {
+                unitsSoldByCategory.merge(product.getCategory().getCategoryId(), sold, Long::sum);
+            }
+            AutocompleteSuggestion suggestion = new AutocompleteSuggestion(AutocompleteSuggestion.TYPE_PRODUCT,
+                    product.getProductId(), product.getName(), "/products/" + product.getProductId(), sold);
+            insertAtWordStarts(builder, product.getName(), suggestion);
+            suggestions++;
+        }
+
+        for (CategorySummary category : productCategoryService.getAllCategories()) {
+            long sold = unitsSoldByCategory.getOrDefault(category.getCategoryId(), 0L);
+            AutocompleteSuggestion suggestion = new AutocompleteSuggestion(AutocompleteSuggestion.TYPE_CATEGORY,
+                    category.getCategoryId(), category.getCategoryName(),
+                    "/products/category/" + category.getCategoryId(), sold);
+            insertAtWordStarts(builder, category.getCategoryName(), suggestion);
+            suggestions++;
+        }
+
+        long[] footprint = new long[2];
+        Node newRoot = freeze(builder, footprint);
+
+        root = newRoot;
+        nodeCount = footprint[0];
+        suggestionCount = suggestions;
+        estimatedBytes = footprint[1];
+        lastBuiltAt = System.currentTimeMillis();
+        logger.info("Autocomplete trie built: {} suggestions, {} nodes, ~{} KB in {} ms",
+                suggestions, nodeCount, estimatedBytes / 1024, lastBuiltAt - start);
+    }
+
+    /**
+     * Suggestions whose name (or any word in it) starts with the given prefix
+     * @param prefix text typed so far
+     * @param limit maximum number of suggestions (capped at MAX_SUGGESTIONS)
+     * @return suggestions, best selling first
+     */
+    public List<AutocompleteSuggestion> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<AutocompleteSuggestion> results = lookup(normalize(prefix), Math.min(Math.max(limit, 0), MAX_SUGGESTIONS));
+        recordLatency(System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * Size and latency figures for the current trie
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodes", nodeCount);
+        stats.put("suggestions", suggestionCount);
+        stats.put("estimatedBytes", estimatedBytes);
+        stats.put("lastBuiltAt", lastBuiltAt);
+        stats.put("lookups", lookups.sum());
+        stats.put("p99Micros", percentileMicros(0.99));
+        return stats;
+    }
+
+    private List<AutocompleteSuggestion> lookup(String prefix, int limit) {
+        if (prefix.isEmpty() || limit == 0) {
+            return List.of();
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        List<AutocompleteSuggestion> results = new ArrayList<>(limit);
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            results.add(node.top[i]);
+        }
+        return results;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static void insertAtWordStarts(BuilderNode builder, String label, AutocompleteSuggestion suggestion) {
+        String text = normalize(label);
+        for (int start = 0; start < text.length(); start++) {
+            if (start == 0 || text.charAt(start - 1) == ' ') {
+                BuilderNode node = builder;
+                for (int i = start; i < text.length(); i++) {
+                    node = node.children.computeIfAbsent(text.charAt(i), c -> new BuilderNode());
+                }
+                node.suggestions.add(suggestion);
+            }
+        }
+    }
+
+    /**
+     * Convert the builder trie into compact array-based nodes, computing each node's
+     * top suggestions from its own entries and its children's top lists.
+     * footprint[0] accumulates node count, footprint[1] an estimate of retained bytes.
+     */
+    private static Node freeze(BuilderNode builder, long[] footprint) {
+        char[] keys = new char[builder.children.size()];
+        Node[] children = new Node[builder.children.size()];
+        List<AutocompleteSuggestion> candidates = new ArrayList<>(builder.suggestions);
+
+        int i = 0;
+        for (Map.Entry<Character, BuilderNode> entry : builder.children.entrySet()) {
+            keys[i] = entry.getKey();
+            children[i] = freeze(entry.getValue(), footprint);
+            candidates.addAll(List.of(children[i].top));
+            i++;
+        }
+
+        candidates.sort(Comparator.comparingLong(AutocompleteSuggestion::getScore).reversed()
+                .thenComparing(AutocompleteSuggestion::getLabel, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<AutocompleteSuggestion> top = new ArrayList<>(MAX_SUGGESTIONS);
+        Set<String> seen = new HashSet<>();
+        for (AutocompleteSuggestion candidate : candidates) {
+            if (top.size() == MAX_SUGGESTIONS) {
+                break;
+            }
+            // A product is inserted once per word, so the same entry can arrive from several children
+            if (seen.add(candidate.getType() + ":" + candidate.getId())) {
+                top.add(candidate);
+            }
+        }
+
+        footprint[0]++;
+        // Object header and fields, plus the three arrays (compressed oops)
+        footprint[1] += 24 + (16 + 2L * keys.length) + (16 + 4L * children.length) + (16 + 4L * top.size());
+        return new Node(keys, children, top.toArray(new AutocompleteSuggestion[0]));
+    }
+
+    private void recordLatency(long nanos) {
+        lookups.increment();
+        long micros = nanos / 1000;
+        for (int i = 0; i < LATENCY_BUCKETS_MICROS.length; i++) {
+            if (micros <= LATENCY_BUCKETS_MICROS[i]) {
+                latencyBuckets[i].increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Upper bound of the histogram bucket containing the given percentile, or -1 when above the last bound
+     */
+    private long percentileMicros(double percentile) {
+        long total = lookups.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile);
+        long cumulative = 0;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            cumulative += latencyBuckets[i].sum();
+            if (cumulative >= threshold) {
+                return LATENCY_BUCKETS_MICROS[i] == Long.MAX_VALUE ? -1 : LATENCY_BUCKETS_MICROS[i];
+            }
+        }
+        return -1;
+    }
+
+    private static final class BuilderNode {
+        private final TreeMap<Character, BuilderNode> children = new TreeMap<>();
+        private final List<AutocompleteSuggestion> suggestions = new ArrayList<>(1);
+    }
+
+    private static final class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final AutocompleteSuggestion[] top;
+
+        private Node(char[] keys, Node[] children, AutocompleteSuggestion[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char key) {
+            // keys are sorted, and small enough that a binary search beats hashing
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package edu.metro.grocerystore.service;
 
+import edu.metro.grocerystore.DTO.CategorySummary;
 import edu.metro.grocerystore.model.ProductCategory;
 import edu.metro.grocerystore.repository.ProductCategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class ProductCategoryService {
     
     private final ProductCategoryRepository productCategoryRepository;
     
+    // The category list is read on every request (see BaseController), so it is cached in memory
+    // as immutable summaries rather than entities, which callers could change or hold across sessions.
+    // Every write bumps the version; a cached list is only served while its version is current.
+    private final AtomicLong categoriesVersion = new AtomicLong();
+    private volatile CachedCategories cachedCategories;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    
     @Autowired
     public ProductCategoryService(ProductCategoryRepository productCategoryRepository) {
         this.productCategoryRepository = productCategoryRepository;
@@ -22,8 +35,38 @@ public class ProductCategoryService {
      * Get all product categories ordered by name
      * @return list of categories sorted alphabetically
      */
-    public List<ProductCategory> getAllCategories() {
-        return productCategoryRepository.findAllOrderByCategoryName();
+    public List<CategorySummary> getAllCategories() {
+        long version = categoriesVersion.get();
+        CachedCategories cached = cachedCategories;
+        if (cached != null && cached.version() == version) {
+            cacheHits.increment();
+            return cached.categories();
+        }
+        
+        cacheMisses.increment();
+        List<CategorySummary> categories = productCategoryRepository.findAllOrderByCategoryName().stream()
+                .map(CategorySummary::new)
+                .toList();
+        // Don't cache a list that a concurrent write may already have made stale
+        if (categoriesVersion.get() == version) {
+            cachedCategories = new CachedCategories(version, categories);
+        }
+        return categories;
+    }
+    
+    /**
+     * Hit/miss statistics of the category list cache
+     * @return map of statistic name to value
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("version", categoriesVersion.get());
+        return stats;
     }
     
     /**
@@ -56,7 +99,9 @@ public class ProductCategoryService {
         }
         
         ProductCategory category = new ProductCategory(categoryName);
-        return productCategoryRepository.save(category);
+        ProductCategory saved = productCategoryRepository.save(category);
+        categoriesVersion.incrementAndGet();
+        return saved;
     }
     
     /**
@@ -65,7 +110,9 @@ public class ProductCategoryService {
      * @return the updated category
      */
     public ProductCategory updateCategory(ProductCategory category) {
-        return productCategoryRepository.save(category);
+        ProductCategory saved = productCategoryRepository.save(category);
+        categoriesVersion.incrementAndGet();
+        return saved;
     }
     
     /**
@@ -74,5 +121,9 @@ public class ProductCategoryService {
      */
     public void deleteCategory(Integer id) {
         productCategoryRepository.deleteById(id);
+        categoriesVersion.incrementAndGet();
+    }
+    
+    private record CachedCategories(long version, List<CategorySummary> categories) {
     }
 }
\ No newline at end of file
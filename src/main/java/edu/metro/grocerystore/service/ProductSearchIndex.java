@@ -0,0 +1,590 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.PriceBucketCount;
+import edu.metro.grocerystore.DTO.ProductSearchCriteria;
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product name, description and SKU.
+ * Built once the application is ready and kept up to date by ProductService,
+ * so storefront searches never fall back to a LIKE scan of the products table.
+ * Words from product names are also indexed by character trigram so that
+ * misspelled search words ("bananna", "yoghurt") can still be matched.
+ * Category, active, in-stock and price-range bitmaps (one bit per product ID)
+ * let a single search return facet counts by intersecting bitmaps.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_FUZZY_LENGTH = 3;
+    // Upper bounds of the price facet buckets, each exclusive like priceBelow; the last bucket is open-ended
+    private static final BigDecimal[] PRICE_BUCKET_BOUNDS = {
+            new BigDecimal("2"), new BigDecimal("5"), new BigDecimal("10"), new BigDecimal("20")};
+
+    private final ProductRepository productRepository;
+
+    // Sorted by token so that prefix lookups are a single range scan
+    private final ConcurrentNavigableMap<String, Set<Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Integer, IndexedProduct> documents = new ConcurrentHashMap<>();
+    // Trigram -> distinct words appearing in product names, with how many products use each word
+    private final Map<String, Set<String>> nameTrigrams = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nameWordCounts = new ConcurrentHashMap<>();
+
+    // Facet bitmaps indexed by product ID, guarded by bitmapLock
+    private final ReadWriteLock bitmapLock = new ReentrantReadWriteLock();
+    private final BitSet activeBits = new BitSet();
+    private final BitSet inStockBits = new BitSet();
+    private final Map<Integer, BitSet> categoryBits = new HashMap<>();
+    private final BitSet[] priceBucketBits = new BitSet[PRICE_BUCKET_BOUNDS.length + 1];
+    private volatile boolean ready = false;
+
+    @Autowired
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        for (int i = 0; i < priceBucketBits.length; i++) {
+            priceBucketBits[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Build the index from the database once startup (including sample data) has finished
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        postings.clear();
+        documents.clear();
+        nameTrigrams.clear();
+        nameWordCounts.clear();
+        bitmapLock.writeLock().lock();
+        try {
+            activeBits.clear();
+            inStockBits.clear();
+            categoryBits.clear();
+            for (BitSet bucket : priceBucketBits) {
+                bucket.clear();
+            }
+        } finally {
+            bitmapLock.writeLock().unlock();
+        }
+        for (Product product : productRepository.findAll()) {
+            addDocument(product);
+        }
+        ready = true;
+        logger.info("Product search index built: {} products, {} terms in {} ms",
+                documents.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Add or replace a product in the index
+     * @param product the saved product
+     */
+    public synchronized void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        removeDocument(product.getProductId());
+        addDocument(product);
+    }
+
+    /**
+     * Remove a product from the index
+     * @param productId product ID
+     */
+    public synchronized void remove(Integer productId) {
+        if (productId != null) {
+            removeDocument(productId);
+        }
+    }
+
+    /**
+     * Record a stock level change without re-indexing the product's text
+     * @param productId product ID
+     * @param quantity new on-hand quantity
+     */
+    public synchronized void updateStock(Integer productId, Integer quantity) {
+        IndexedProduct existing = productId != null ? documents.get(productId) : null;
+        if (existing == null) {
+            return;
+        }
+        documents.put(productId, existing.withQuantity(quantity));
+        bitmapLock.writeLock().lock();
+        try {
+            inStockBits.set(productId, quantity != null && quantity > 0);
+        } finally {
+            bitmapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true once the initial build has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Number of products currently indexed
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Find active products matching the criteria's search term and filters, with facet counts.
+     * Every word of the search term must match the start of a word in the
+     * product's name, description or SKU. A word with no such match is
+     * retried against product-name words within a small edit distance.
+     * Without a search term every active product is a candidate.
+     * @param criteria search criteria (search term, category, price and stock filters, sort)
+     * @return matching product IDs in the requested sort order, plus facet counts
+     */
+    public SearchHits search(ProductSearchCriteria criteria) {
+        Comparator<IndexedProduct> order = comparator(criteria.getSortBy(), criteria.getSortDirection());
+        BitSet textMatches = null;
+        List<String> queryTokens = tokenize(criteria.getSearchTerm());
+        if (!queryTokens.isEmpty()) {
+            textMatches = new BitSet();
+            for (Integer productId : matchText(queryTokens)) {
+                textMatches.set(productId);
+            }
+        }
+
+        Map<Integer, Integer> categoryCounts = new LinkedHashMap<>();
+        List<PriceBucketCount> priceBuckets = new ArrayList<>(priceBucketBits.length);
+        int inStockCount;
+        BitSet matches;
+
+        bitmapLock.readLock().lock();
+        try {
+            BitSet base = (BitSet) activeBits.clone();
+            if (textMatches != null) {
+                base.and(textMatches);
+            }
+            BitSet categoryFilter = null;
+            if (criteria.getCategoryId() != null) {
+                categoryFilter = categoryBits.getOrDefault(criteria.getCategoryId(), new BitSet());
+            }
+            BitSet priceFilter = priceRange(base, criteria.getMinPrice(), criteria.getMaxPrice(), criteria.getPriceBelow());
+            Boolean inStock = criteria.getInStock();
+
+            // Each facet is counted with every filter except its own
+            BitSet forCategories = filter(base, null, priceFilter, inStock);
+            for (Map.Entry<Integer, BitSet> entry : categoryBits.entrySet()) {
+                int count = intersectionCount(forCategories, entry.getValue());
+                if (count > 0) {
+                    categoryCounts.put(entry.getKey(), count);
+                }
+            }
+
+            BitSet forPrices = filter(base, categoryFilter, null, inStock);
+            for (int i = 0; i < priceBucketBits.length; i++) {
+                BigDecimal min = i == 0 ? BigDecimal.ZERO : PRICE_BUCKET_BOUNDS[i - 1];
+                BigDecimal max = i < PRICE_BUCKET_BOUNDS.length ? PRICE_BUCKET_BOUNDS[i] : null;
+                priceBuckets.add(new PriceBucketCount(priceBucketLabel(min, max), min, max,
+                        intersectionCount(forPrices, priceBucketBits[i])));
+            }
+
+            inStockCount = intersectionCount(filter(base, categoryFilter, priceFilter, null), inStockBits);
+            matches = filter(base, categoryFilter, priceFilter, inStock);
+        } finally {
+            bitmapLock.readLock().unlock();
+        }
+
+        List<IndexedProduct> results = new ArrayList<>(matches.cardinality());
+        for (int productId = matches.nextSetBit(0); productId >= 0; productId = matches.nextSetBit(productId + 1)) {
+            IndexedProduct doc = documents.get(productId);
+            if (doc != null) {
+                results.add(doc);
+            }
+        }
+        results.sort(order);
+        List<Integer> productIds = results.stream().map(IndexedProduct::productId).toList();
+
+        return new SearchHits(productIds, categoryCounts, priceBuckets, inStockCount);
+    }
+
+    /**
+     * One keyset page of a search: the matching product IDs that sort after the last product
+     * of the previous page, seeking in memory with the same order as search
+     * @param criteria search criteria, as for search
+     * @param after sort field value and productId of the last product of the previous page,
+     *              or empty for the first page
+     * @param limit maximum number of IDs
+     * @return matching product IDs in the requested sort order
+     */
+    public List<Integer> searchAfter(ProductSearchCriteria criteria, Map<String, Object> after, int limit) {
+        List<Integer> sortedIds = search(criteria).productIds();
+        int from = 0;
+        if (!after.isEmpty()) {
+            Comparator<IndexedProduct> order = comparator(criteria.getSortBy(), criteria.getSortDirection());
+            IndexedProduct last = sortKeyProbe(criteria.getSortBy(), after);
+            while (from < sortedIds.size()) {
+                IndexedProduct doc = documents.get(sortedIds.get(from));
+                if (doc != null && order.compare(doc, last) > 0) {
+                    break;
+                }
+                from++;
+            }
+        }
+        return sortedIds.subList(from, Math.min(from + limit, sortedIds.size()));
+    }
+
+    /**
+     * A stand-in document holding only the sort key values of a keyset cursor
+     */
+    private static IndexedProduct sortKeyProbe(String sortBy, Map<String, Object> after) {
+        Object sortValue = after.get(sortBy);
+        boolean validSortValue = switch (sortBy) {
+            case "name" -> sortValue instanceof String;
+            case "price" -> sortValue instanceof BigDecimal;
+            case "quantity" -> sortValue instanceof Integer;
+            default -> true;
+        };
+        if (!(after.get("productId") instanceof Integer productId) || !validSortValue) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        return new IndexedProduct(productId,
+                sortValue instanceof String name ? name.toLowerCase(Locale.ROOT) : "",
+                sortValue instanceof BigDecimal price ? price : null,
+                null,
+                sortValue instanceof Integer quantity ? quantity : null,
+                true, List.of(), List.of());
+    }
+
+    /**
+     * Products matching every query word, by prefix or, failing that, fuzzily
+     */
+    private Set<Integer> matchText(List<String> queryTokens) {
+        Set<Integer> candidates = null;
+        for (String token : queryTokens) {
+            Set<Integer> matches = prefixMatches(token);
+            if (matches.isEmpty()) {
+                matches = fuzzyMatches(token);
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Subset of the candidates whose price lies within the bounds, or null when unbounded
+     */
+    private BitSet priceRange(BitSet candidates, BigDecimal minPrice, BigDecimal maxPrice, BigDecimal priceBelow) {
+        if (minPrice == null && maxPrice == null && priceBelow == null) {
+            return null;
+        }
+        BitSet inRange = new BitSet();
+        for (int productId = candidates.nextSetBit(0); productId >= 0; productId = candidates.nextSetBit(productId + 1)) {
+            IndexedProduct doc = documents.get(productId);
+            if (doc != null && ProductSearchCriteria.isInPriceRange(doc.price(), minPrice, maxPrice, priceBelow)) {
+                inRange.set(productId);
+            }
+        }
+        return inRange;
+    }
+
+    private BitSet filter(BitSet base, BitSet categoryFilter, BitSet priceFilter, Boolean inStock) {
+        BitSet result = (BitSet) base.clone();
+        if (categoryFilter != null) {
+            result.and(categoryFilter);
+        }
+        if (priceFilter != null) {
+            result.and(priceFilter);
+        }
+        if (Boolean.TRUE.equals(inStock)) {
+            result.and(inStockBits);
+        } else if (Boolean.FALSE.equals(inStock)) {
+            result.andNot(inStockBits);
+        }
+        return result;
+    }
+
+    private static int intersectionCount(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection.cardinality();
+    }
+
+    /**
+     * The bucket whose range, as a price filter, would match the price
+     */
+    private static int priceBucket(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < PRICE_BUCKET_BOUNDS.length && !ProductSearchCriteria.isInPriceRange(price,
+                bucket == 0 ? null : PRICE_BUCKET_BOUNDS[bucket - 1], null, PRICE_BUCKET_BOUNDS[bucket])) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static String priceBucketLabel(BigDecimal min, BigDecimal max) {
+        if (max == null) {
+            return "$" + min.toPlainString() + " & up";
+        }
+        if (min.signum() == 0) {
+            return "Under $" + max.toPlainString();
+        }
+        return "$" + min.toPlainString() + " - $" + max.toPlainString();
+    }
+
+    /**
+     * Split text into lowercase word tokens
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Set<Integer> prefixMatches(String prefix) {
+        Set<Integer> matches = new HashSet<>();
+        for (Set<Integer> ids : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            matches.addAll(ids);
+        }
+        return matches;
+    }
+
+    /**
+     * Products whose name contains a word within the allowed edit distance of the given word.
+     * Candidate words are gathered from the trigram index, so only words sharing
+     * enough trigrams with the query are compared character by character.
+     */
+    private Set<Integer> fuzzyMatches(String word) {
+        Set<Integer> matches = new HashSet<>();
+        if (word.length() < MIN_FUZZY_LENGTH) {
+            return matches;
+        }
+
+        int maxDistance = word.length() <= 5 ? 1 : 2;
+        List<String> queryTrigrams = trigrams(word);
+        // Each edit can destroy at most three trigrams
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * maxDistance);
+
+        Map<String, Integer> sharedCounts = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> words = nameTrigrams.get(trigram);
+            if (words != null) {
+                for (String candidate : words) {
+                    sharedCounts.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : sharedCounts.entrySet()) {
+            String candidate = entry.getKey();
+            if (entry.getValue() >= minShared
+                    && Math.abs(candidate.length() - word.length()) <= maxDistance
+                    && editDistance(word, candidate, maxDistance) <= maxDistance) {
+                Set<Integer> ids = postings.get(candidate);
+                if (ids != null) {
+                    matches.addAll(ids);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Character trigrams of a word, padded so that the first and last letters count
+     */
+    static List<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        List<String> trigrams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Levenshtein distance, giving up as soon as it must exceed maxDistance
+     * @return the distance, or maxDistance + 1 if it is larger than maxDistance
+     */
+    static int editDistance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private void addDocument(Product product) {
+        Set<String> nameWords = new HashSet<>(tokenize(product.getName()));
+        Set<String> tokens = new HashSet<>(nameWords);
+        tokens.addAll(tokenize(product.getDescription()));
+        tokens.addAll(tokenize(product.getSku()));
+
+        Integer categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+        IndexedProduct doc = new IndexedProduct(
+                product.getProductId(),
+                product.getName() != null ? product.getName().toLowerCase(Locale.ROOT) : "",
+                product.getPrice(),
+                categoryId,
+                product.getQuantity(),
+                Boolean.TRUE.equals(product.getIsActive()),
+                tokens,
+                nameWords);
+        documents.put(doc.productId(), doc);
+
+        int id = doc.productId();
+        bitmapLock.writeLock().lock();
+        try {
+            activeBits.set(id, doc.active());
+            inStockBits.set(id, doc.quantity() != null && doc.quantity() > 0);
+            if (categoryId != null) {
+                categoryBits.computeIfAbsent(categoryId, c -> new BitSet()).set(id);
+            }
+            if (doc.price() != null) {
+                priceBucketBits[priceBucket(doc.price())].set(id);
+            }
+        } finally {
+            bitmapLock.writeLock().unlock();
+        }
+
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(doc.productId());
+        }
+        for (String word : nameWords) {
+            if (nameWordCounts.merge(word, 1, Integer::sum) == 1) {
+                for (String trigram : trigrams(word)) {
+                    nameTrigrams.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(word);
+                }
+            }
+        }
+    }
+
+    private void removeDocument(Integer productId) {
+        IndexedProduct existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        bitmapLock.writeLock().lock();
+        try {
+            activeBits.clear(productId);
+            inStockBits.clear(productId);
+            for (BitSet bits : categoryBits.values()) {
+                bits.clear(productId);
+            }
+            for (BitSet bucket : priceBucketBits) {
+                bucket.clear(productId);
+            }
+        } finally {
+            bitmapLock.writeLock().unlock();
+        }
+        for (String token : existing.tokens()) {
+            postings.computeIfPresent(token, (t, ids) -> {
+                ids.remove(productId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        for (String word : existing.nameWords()) {
+            if (nameWordCounts.merge(word, -1, Integer::sum) <= 0) {
+                nameWordCounts.remove(word);
+                for (String trigram : trigrams(word)) {
+                    nameTrigrams.computeIfPresent(trigram, (t, words) -> {
+                        words.remove(word);
+                        return words.isEmpty() ? null : words;
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Search result order, with productId as tie-breaker
+     * @throws IllegalArgumentException if sortBy is not one of ProductSearchCriteria.SORT_FIELDS,
+     *                                  which the database searches reject too
+     */
+    private static Comparator<IndexedProduct> comparator(String sortBy, String sortDirection) {
+        Comparator<IndexedProduct> comparator = switch (ProductSearchCriteria.requireSortField(sortBy)) {
+            case "price" -> Comparator.comparing(IndexedProduct::price,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case "productId" -> Comparator.comparing(IndexedProduct::productId);
+            case "quantity" -> Comparator.comparing(IndexedProduct::quantity,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            default -> Comparator.comparing(IndexedProduct::sortName);
+        };
+        if ("DESC".equalsIgnoreCase(sortDirection)) {
+            comparator = comparator.reversed();
+        }
+        return comparator.thenComparing(IndexedProduct::productId);
+    }
+
+    /**
+     * Result of an index search: sorted matching IDs and facet counts
+     */
+    public record SearchHits(List<Integer> productIds, Map<Integer, Integer> categoryCounts,
+                             List<PriceBucketCount> priceBuckets, int inStockCount) {
+    }
+
+    /**
+     * The subset of a product the index needs for filtering and sorting
+     */
+    private record IndexedProduct(Integer productId, String sortName, BigDecimal price,
+                                  Integer categoryId, Integer quantity, boolean active,
+                                  Collection<String> tokens, Collection<String> nameWords) {
+
+        IndexedProduct withQuantity(Integer newQuantity) {
+            return new IndexedProduct(productId, sortName, price, categoryId, newQuantity, active, tokens, nameWords);
+        }
+    }
+}
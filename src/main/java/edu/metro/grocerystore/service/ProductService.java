@@ -1,38 +1,88 @@
 package edu.metro.grocerystore.service;
 
+import edu.metro.grocerystore.DTO.AutocompleteSuggestion;
+import edu.metro.grocerystore.DTO.KeysetPage;
+import edu.metro.grocerystore.DTO.ProductCard;
 import edu.metro.grocerystore.DTO.ProductSearchCriteria;
+import edu.metro.grocerystore.DTO.ProductSearchResult;
 import edu.metro.grocerystore.model.Product;
 import edu.metro.grocerystore.model.ProductCategory;
 import edu.metro.grocerystore.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
     
+    private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+    // Card value each of ProductSearchCriteria.SORT_FIELDS sorts on
+    private static final Map<String, Function<ProductCard, Object>> CARD_SORT_KEYS = Map.of(
+            "name", ProductCard::getName,
+            "price", ProductCard::getPrice,
+            "quantity", ProductCard::getQuantity,
+            "productId", ProductCard::getProductId);
+    
     private final ProductRepository productRepository;
     private final ProductCategoryService productCategoryService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
+    private final HomeFeedService homeFeedService;
+    private final TransactionTemplate transactionTemplate;
+    private final int stockMaxAttempts;
+    private final long stockBackoffMs;
+    
+    // Stock mutation outcomes, for the retry metrics
+    private final LongAdder stockMutations = new LongAdder();
+    private final LongAdder stockConflicts = new LongAdder();
+    private final LongAdder stockRetriesExhausted = new LongAdder();
     
     @Autowired
-    public ProductService(ProductRepository productRepository, ProductCategoryService productCategoryService) {
+    public ProductService(ProductRepository productRepository, ProductCategoryService productCategoryService,
+                          ProductSearchIndex productSearchIndex, ProductAutocompleteIndex productAutocompleteIndex,
+                          HomeFeedService homeFeedService, TransactionTemplate transactionTemplate,
+                          @Value("${grocerystore.stock.max-attempts:5}") int stockMaxAttempts,
+                          @Value("${grocerystore.stock.backoff-ms:10}") long stockBackoffMs) {
         this.productRepository = productRepository;
         this.productCategoryService = productCategoryService;
+        this.productSearchIndex = productSearchIndex;
+        this.productAutocompleteIndex = productAutocompleteIndex;
+        this.homeFeedService = homeFeedService;
+        this.transactionTemplate = transactionTemplate;
+        this.stockMaxAttempts = Math.max(1, stockMaxAttempts);
+        this.stockBackoffMs = stockBackoffMs;
     }
     
     /**
      * Get all active products
-     * @return list of active products
+     * @return cards of active products
      */
-    public List<Product> getAllActiveProducts() {
-        return productRepository.findByIsActiveTrue();
+    @Transactional(readOnly = true)
+    public List<ProductCard> getAllActiveProducts() {
+        return productRepository.findActiveCards();
     }
     
     /**
@@ -43,6 +93,7 @@ public class ProductService {
      * @param sortDirection sort direction (ASC/DESC)
      * @return page of active products
      */
+    @Transactional(readOnly = true)
     public Page<Product> getAllActiveProducts(int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") ? 
                    Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
@@ -51,7 +102,8 @@ public class ProductService {
     }
     
     /**
-     * Get product by ID
+     * Get product by ID. Not read-only like the list queries: callers change and save
+     * the product they get, and it must come from the primary database.
      * @param id product ID
      * @return Optional containing the product if found
      */
@@ -62,10 +114,11 @@ public class ProductService {
     /**
      * Get products by category
      * @param categoryId category ID
-     * @return list of products in the category
+     * @return cards of products in the category
      */
-    public List<Product> getProductsByCategory(Integer categoryId) {
-        return productRepository.findByCategoryIdAndIsActiveTrue(categoryId);
+    @Transactional(readOnly = true)
+    public List<ProductCard> getProductsByCategory(Integer categoryId) {
+        return productRepository.findActiveCardsByCategoryId(categoryId);
     }
     
     /**
@@ -75,18 +128,14 @@ public class ProductService {
      * @param size page size
      * @param sortBy field to sort by
      * @param sortDirection sort direction (ASC/DESC)
-     * @return page of products in the category
+     * @return page of cards of products in the category
      */
-    public Page<Product> getProductsByCategory(Integer categoryId, int page, int size, String sortBy, String sortDirection) {
-        Optional<ProductCategory> category = productCategoryService.findById(categoryId);
-        if (category.isEmpty()) {
-            return Page.empty();
-        }
-        
+    @Transactional(readOnly = true)
+    public Page<ProductCard> getProductsByCategory(Integer categoryId, int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") ? 
                    Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
-        return productRepository.findByCategoryAndIsActiveTrue(category.get(), pageable);
+        return productRepository.findActiveCardsByCategoryId(categoryId, pageable);
     }
     
     /**
@@ -94,6 +143,7 @@ public class ProductService {
      * @param name name to search for
      * @return list of matching products
      */
+    @Transactional(readOnly = true)
     public List<Product> searchProductsByName(String name) {
         return productRepository.findByNameContainingIgnoreCaseAndIsActiveTrue(name);
     }
@@ -113,38 +163,112 @@ public class ProductService {
      * @param maxPrice maximum price
      * @return list of products within price range
      */
+    @Transactional(readOnly = true)
     public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
         return productRepository.findByPriceRangeAndIsActiveTrue(minPrice, maxPrice);
     }
     
     /**
-     * Get featured products
-     * @param limit maximum number of products to return
-     * @return list of featured products
+     * Search products with multiple criteria using DTO.
+     * Text searches are answered from the in-memory search index; only the
+     * products on the requested page are loaded from the database.
+     * @param criteria search criteria containing all parameters
+     * @return page of cards of matching products
      */
-    public List<Product> getFeaturedProducts(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return productRepository.findFeaturedProducts(pageable);
+    @Transactional(readOnly = true)
+    public Page<ProductCard> searchProducts(ProductSearchCriteria criteria) {
+        Pageable pageable = searchPageable(criteria);
+        
+        boolean hasSearchTerm = criteria.getSearchTerm() != null && !criteria.getSearchTerm().isBlank();
+        if (hasSearchTerm && productSearchIndex.isReady()) {
+            List<Integer> matchingIds = productSearchIndex.search(criteria).productIds();
+            return loadPage(matchingIds, pageable);
+        }
+        
+        return productRepository.searchProducts(criteria.getSearchTerm(), criteria.getCategoryId(), 
+                                               criteria.getMinPrice(), criteria.getMaxPrice(), criteria.getPriceBelow(), pageable);
     }
     
     /**
-     * Search products with multiple criteria using DTO
-     * @param criteria search criteria containing all parameters
-     * @return page of matching products
+     * Search active products and count the results per category, price range and stock status.
+     * Products and facet counts both come from one pass over the search index bitmaps;
+     * only the products on the requested page are loaded from the database.
+     * @param criteria search criteria containing all parameters (search term optional)
+     * @return page of matching products with facet counts
      */
-    public Page<Product> searchProducts(ProductSearchCriteria criteria) {
-        Sort sort = criteria.getSortDirection().equalsIgnoreCase("DESC") ? 
-                   Sort.by(criteria.getSortBy()).descending() : Sort.by(criteria.getSortBy()).ascending();
-        Pageable pageable = PageRequest.of(criteria.getPage(), criteria.getSize(), sort);
+    @Transactional(readOnly = true)
+    public ProductSearchResult searchProductsWithFacets(ProductSearchCriteria criteria) {
+        Pageable pageable = searchPageable(criteria);
         
-        return productRepository.searchProducts(criteria.getSearchTerm(), criteria.getCategoryId(), 
-                                               criteria.getMinPrice(), criteria.getMaxPrice(), pageable);
+        if (!productSearchIndex.isReady()) {
+            Page<ProductCard> products = productRepository.searchAllProducts(criteria.getSearchTerm(), criteria.getCategoryId(),
+                    criteria.getMinPrice(), criteria.getMaxPrice(), criteria.getPriceBelow(), true, criteria.getInStock(), pageable);
+            return new ProductSearchResult(products, Map.of(), List.of(), 0);
+        }
+        
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(criteria);
+        return new ProductSearchResult(loadPage(hits.productIds(), pageable),
+                hits.categoryCounts(), hits.priceBuckets(), hits.inStockCount());
+    }
+    
+    /**
+     * Page request of a search. The sort field is checked here, so the database and the
+     * search index accept the same fields whichever answers the search.
+     */
+    private Pageable searchPageable(ProductSearchCriteria criteria) {
+        String sortBy = ProductSearchCriteria.requireSortField(criteria.getSortBy());
+        Sort sort = criteria.getSortDirection().equalsIgnoreCase("DESC") ? 
+                   Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        return PageRequest.of(criteria.getPage(), criteria.getSize(), sort);
+    }
+    
+    /**
+     * Load one page of product cards from an already sorted list of product IDs
+     */
+    private Page<ProductCard> loadPage(List<Integer> sortedIds, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), sortedIds.size());
+        int to = Math.min(from + pageable.getPageSize(), sortedIds.size());
+        return new PageImpl<>(loadCards(sortedIds.subList(from, to)), pageable, sortedIds.size());
+    }
+    
+    /**
+     * Load product cards in the order of the given IDs
+     */
+    private List<ProductCard> loadCards(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, ProductCard> cardsById = productRepository.findCardsByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductCard::getProductId, Function.identity()));
+        return productIds.stream()
+                .map(cardsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+    
+    /**
+     * Type-ahead suggestions for the search box
+     * @param prefix text typed so far
+     * @param limit maximum number of suggestions
+     * @return matching product and category suggestions, best selling first
+     */
+    public List<AutocompleteSuggestion> getAutocompleteSuggestions(String prefix, int limit) {
+        return productAutocompleteIndex.suggest(prefix, limit);
+    }
+    
+    /**
+     * Size and latency statistics of the autocomplete index
+     * @return map of statistic name to value
+     */
+    public Map<String, Object> getAutocompleteStats() {
+        return productAutocompleteIndex.getStats();
     }
     
     /**
      * Get low stock products
      * @return list of products with low stock
      */
+    @Transactional(readOnly = true)
     public List<Product> getLowStockProducts() {
         return productRepository.findLowStockProducts();
     }
@@ -161,7 +285,11 @@ public class ProductService {
         }
         
         product.setIsActive(true);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productSearchIndex.index(saved);
+        productAutocompleteIndex.markStale();
+        homeFeedService.markStale();
+        return saved;
     }
     
     /**
@@ -170,7 +298,29 @@ public class ProductService {
      * @return the updated product
      */
     public Product updateProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productSearchIndex.index(saved);
+        productAutocompleteIndex.markStale();
+        homeFeedService.markStale();
+        return saved;
+    }
+    
+    /**
+     * Update a product from the edit form, unless it changed since the form was opened.
+     * A checkout or stock adjustment in between bumps the version, and saving the form's
+     * quantity over it would undo that change.
+     * @param product the product, as loaded for this request, with the form's values applied
+     * @param formVersion version of the product shown in the form
+     * @return the updated product
+     * @throws IllegalArgumentException if the product changed since the form was opened
+     */
+    public Product updateProduct(Product product, Long formVersion) {
+        if (!Objects.equals(product.getVersion(), formVersion)) {
+            throw new IllegalArgumentException(
+                "The product was changed (for example stock was sold) since the form was opened. Review the current values and save again.");
+        }
+        // The version check on save covers changes made after the product was loaded
+        return updateProduct(product);
     }
     
     /**
@@ -183,7 +333,9 @@ public class ProductService {
         if (productOpt.isPresent()) {
             Product product = productOpt.get();
             product.setIsActive(false);
-            productRepository.save(product);
+            productSearchIndex.index(productRepository.save(product));
+            productAutocompleteIndex.markStale();
+            homeFeedService.markStale();
             return true;
         }
         return false;
@@ -195,6 +347,9 @@ public class ProductService {
      */
     public void deleteProduct(Integer id) {
         productRepository.deleteById(id);
+        productSearchIndex.remove(id);
+        productAutocompleteIndex.markStale();
+        homeFeedService.markStale();
     }
     
     /**
@@ -204,15 +359,107 @@ public class ProductService {
      * @return true if stock was adjusted successfully
      */
     public boolean adjustStock(Integer id, Integer quantityChange) {
-        Optional<Product> productOpt = productRepository.findById(id);
-        if (productOpt.isPresent()) {
+        return withStockRetry(() -> {
+            Optional<Product> productOpt = productRepository.findById(id);
+            if (productOpt.isPresent()) {
+                Product product = productOpt.get();
+                if (product.adjustStock(quantityChange)) {
+                    productRepository.saveAndFlush(product);
+                    publishStock(id, product.getQuantity());
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+    
+    /**
+     * Set product stock to an absolute quantity
+     * @param id product ID
+     * @param quantity new stock quantity
+     * @return true if the stock was set, false if the product was not found
+     * @throws IllegalArgumentException if the quantity is negative
+     */
+    public boolean setStock(Integer id, Integer quantity) {
+        if (quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative");
+        }
+        return withStockRetry(() -> {
+            Optional<Product> productOpt = productRepository.findById(id);
+            if (productOpt.isEmpty()) {
+                return false;
+            }
             Product product = productOpt.get();
-            if (product.adjustStock(quantityChange)) {
-                productRepository.save(product);
-                return true;
+            product.setQuantity(quantity);
+            productRepository.saveAndFlush(product);
+            publishStock(id, quantity);
+            return true;
+        });
+    }
+    
+    /**
+     * Put a new stock level in the search index once the surrounding transaction has committed,
+     * so a rolled back or retried attempt never shows up as changed stock
+     */
+    private void publishStock(Integer id, int quantity) {
+        TransactionCallbacks.runAfterCommit(() -> productSearchIndex.updateStock(id, quantity));
+    }
+    
+    /**
+     * Run an operation that changes product stock in its own transaction, retrying with
+     * exponential backoff when a concurrent write bumped a product's version first.
+     * The operation must re-read the products it changes and flush before returning,
+     * so conflicts surface inside the attempt. Called from within an existing transaction
+     * it simply joins it, since only the outer transaction could be retried.
+     * @param operation the read-modify-write to run
+     * @return the operation's result
+     * @throws OptimisticLockingFailureException if every attempt conflicted
+     */
+    public <T> T withStockRetry(Supplier<T> operation) {
+        stockMutations.increment();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operation.get();
+        }
+        
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (OptimisticLockingFailureException e) {
+                stockConflicts.increment();
+                if (attempt >= stockMaxAttempts) {
+                    stockRetriesExhausted.increment();
+                    logger.warn("Stock update still conflicting after {} attempts", attempt);
+                    throw e;
+                }
+                backOff(attempt, e);
             }
         }
-        return false;
+    }
+    
+    /**
+     * Sleep before the next attempt: base delay doubled per attempt, with full jitter
+     */
+    private void backOff(int attempt, OptimisticLockingFailureException cause) {
+        long ceiling = stockBackoffMs << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+    
+    /**
+     * Counts of stock mutations and optimistic lock retries
+     * @return map of statistic name to value
+     */
+    public Map<String, Object> getStockRetryStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mutations", stockMutations.sum());
+        stats.put("conflicts", stockConflicts.sum());
+        stats.put("retriesExhausted", stockRetriesExhausted.sum());
+        stats.put("maxAttempts", stockMaxAttempts);
+        return stats;
     }
     
     /**
@@ -220,6 +467,7 @@ public class ProductService {
      * @param categoryId category ID
      * @return number of active products in the category
      */
+    @Transactional(readOnly = true)
     public long countProductsByCategory(Integer categoryId) {
         Optional<ProductCategory> category = productCategoryService.findById(categoryId);
         if (category.isPresent()) {
@@ -236,6 +484,7 @@ public class ProductService {
      * @param sortDirection sort direction (ASC/DESC)
      * @return page of all products
      */
+    @Transactional(readOnly = true)
     public Page<Product> getAllProducts(int page, int size, String sortBy, String sortDirection) {
         Sort sort = sortDirection.equalsIgnoreCase("DESC") ? 
                    Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
@@ -243,6 +492,28 @@ public class ProductService {
         return productRepository.findAll(pageable);
     }
     
+    /**
+     * Search products with keyset pagination: each page seeks past the cursor instead of using
+     * OFFSET, and no count query runs. Active-only searches are answered by the search index when
+     * it is ready, as searchProductsWithFacets does; anything else is one card query per page.
+     * @param criteria search criteria; page is ignored, size is the page size
+     * @param isActive active status filter, or null for all products (admin/employee)
+     * @param cursor cursor returned with the previous page, or null/blank for the first page
+     * @return page of product cards with the cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ProductCard> scrollProducts(ProductSearchCriteria criteria, Boolean isActive, String cursor) {
+        Function<ProductCard, Object> sortKey = CARD_SORT_KEYS.get(ProductSearchCriteria.requireSortField(criteria.getSortBy()));
+        Map<String, Object> after = KeysetCursors.decode(cursor);
+        int limit = criteria.getSize() + 1;
+        
+        List<ProductCard> rows = Boolean.TRUE.equals(isActive) && productSearchIndex.isReady()
+                ? loadCards(productSearchIndex.searchAfter(criteria, after, limit))
+                : productRepository.scrollProductCards(criteria, isActive, after, limit);
+        return KeysetCursors.toPage(rows, criteria.getSize(), card -> KeysetCursors.sortKeys(
+                criteria.getSortBy(), sortKey.apply(card), "productId", card.getProductId()));
+    }
+    
     /**
      * Search all products (including inactive) with filters - for admin/employee
      * @param searchTerm search term for name or description
@@ -253,26 +524,26 @@ public class ProductService {
      * @param inStock stock availability filter (optional)
      * @param page page number (0-based)
      * @param size page size
-     * @param sortBy field to sort by
+     * @param sortBy field to sort by, one of ProductSearchCriteria.SORT_FIELDS
      * @param sortDirection sort direction (ASC/DESC)
-     * @return page of matching products
+     * @return page of cards of matching products
      */
-    public Page<Product> searchAllProducts(String searchTerm, Integer categoryId, 
+    @Transactional(readOnly = true)
+    public Page<ProductCard> searchAllProducts(String searchTerm, Integer categoryId, 
                                           BigDecimal minPrice, BigDecimal maxPrice,
                                           Boolean isActive, Boolean inStock,
                                           int page, int size, String sortBy, String sortDirection) {
-        Sort sort = sortDirection.equalsIgnoreCase("DESC") ? 
-                   Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
+        ProductSearchCriteria criteria = new ProductSearchCriteria(searchTerm, categoryId, minPrice, maxPrice,
+                                                                   page, size, sortBy, sortDirection);
         return productRepository.searchAllProducts(searchTerm, categoryId, 
-                                                  minPrice, maxPrice, isActive, inStock, pageable);
+                                                  minPrice, maxPrice, null, isActive, inStock, searchPageable(criteria));
     }
     
     /**
      * Get the maximum price of all products
      * @return maximum product price or BigDecimal.ZERO if no products
      */
+    @Transactional(readOnly = true)
     public BigDecimal getMaxPrice() {
         BigDecimal maxPrice = productRepository.findMaxPrice();
         return maxPrice != null ? maxPrice : BigDecimal.ZERO;
@@ -0,0 +1,271 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.model.CartItem;
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.model.StockReservation;
+import edu.metro.grocerystore.model.User;
+import edu.metro.grocerystore.repository.StockReservationRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived stock holds taken when a customer opens checkout, so the items they
+ * are paying for cannot be sold to someone else in the meantime.
+ * Holds live in concurrent maps and are mirrored to the stock_reservations table,
+ * which is reloaded on startup. Expired holds are released by a background sweep.
+ * Available-to-sell quantity is on-hand stock minus other customers' active holds.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final long ttlMs;
+
+    // User ID -> that user's current hold (one per user, replaced when checkout is reopened)
+    private final Map<Integer, Hold> holdsByUser = new ConcurrentHashMap<>();
+    // Product ID -> units held across all users
+    private final Map<Integer, Integer> heldByProduct = new ConcurrentHashMap<>();
+    private final LongAdder expiredHolds = new LongAdder();
+
+    @Autowired
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   @Value("${grocerystore.reservation.ttl-ms:600000}") long ttlMs) {
+        this.reservationRepository = reservationRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Restore holds that were still active when the application last stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void loadActiveHolds() {
+        Instant now = Instant.now();
+        reservationRepository.deleteExpired(now);
+
+        Map<Integer, Map<Integer, Integer>> quantitiesByUser = new HashMap<>();
+        Map<Integer, Instant> expiryByUser = new HashMap<>();
+        for (StockReservation reservation : reservationRepository.findByExpiresAtAfter(now)) {
+            quantitiesByUser.computeIfAbsent(reservation.getUserId(), id -> new TreeMap<>())
+                    .merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            expiryByUser.merge(reservation.getUserId(), reservation.getExpiresAt(),
+                    (a, b) -> a.isBefore(b) ? a : b);
+        }
+
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : quantitiesByUser.entrySet()) {
+            Hold hold = new Hold(entry.getValue(), expiryByUser.get(entry.getKey()));
+            holdsByUser.put(entry.getKey(), hold);
+            hold.quantities().forEach((productId, quantity) -> heldByProduct.merge(productId, quantity, Integer::sum));
+        }
+        logger.info("Restored {} stock reservation holds", holdsByUser.size());
+    }
+
+    /**
+     * Hold the quantities in the user's cart for the reservation TTL, replacing any
+     * earlier hold of theirs. A product that cannot be held in full is left out.
+     * @param user customer starting checkout
+     * @param cartItems items in the customer's cart
+     * @return products that could not be held because the remaining stock is held by others
+     */
+    @Transactional
+    public List<Product> reserve(User user, List<CartItem> cartItems) {
+        Map<Integer, Integer> requested = new TreeMap<>();
+        Map<Integer, Product> products = new HashMap<>();
+        for (CartItem item : cartItems) {
+            requested.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+            products.put(item.getProduct().getProductId(), item.getProduct());
+        }
+
+        Instant expiresAt = Instant.now().plusMillis(ttlMs);
+        List<Product> unavailable = new ArrayList<>();
+        Hold[] replaced = {null};
+        Hold hold = holdsByUser.compute(user.getId(), (userId, previous) -> {
+            replaced[0] = previous;
+            if (previous != null) {
+                releaseCounts(previous);
+            }
+            // Product ID order, like the checkout stock update
+            Map<Integer, Integer> held = new TreeMap<>();
+            for (Map.Entry<Integer, Integer> line : requested.entrySet()) {
+                Product product = products.get(line.getKey());
+                if (tryHold(line.getKey(), line.getValue(), product.getQuantity())) {
+                    held.put(line.getKey(), line.getValue());
+                } else {
+                    unavailable.add(product);
+                }
+            }
+            return held.isEmpty() ? null : new Hold(held, expiresAt);
+        });
+        undoOnRollback(user.getId(), hold, replaced[0]);
+
+        reservationRepository.deleteByUserId(user.getId());
+        if (hold != null) {
+            List<StockReservation> rows = new ArrayList<>();
+            hold.quantities().forEach((productId, quantity) ->
+                    rows.add(new StockReservation(user.getId(), productId, quantity, hold.expiresAt())));
+            reservationRepository.saveAll(rows);
+        }
+        return unavailable;
+    }
+
+    /**
+     * The hold is taken in memory straight away, so concurrent checkouts see it; if the
+     * transaction writing its rows rolls back, put the user's previous hold back instead
+     */
+    private void undoOnRollback(Integer userId, Hold hold, Hold previous) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                holdsByUser.compute(userId, (id, current) -> {
+                    if (current != hold) {
+                        // Replaced or released again since, so the later change stands
+                        return current;
+                    }
+                    if (hold != null) {
+                        releaseCounts(hold);
+                    }
+                    if (previous != null) {
+                        previous.quantities().forEach((productId, quantity) ->
+                                heldByProduct.merge(productId, quantity, Integer::sum));
+                    }
+                    return previous;
+                });
+            }
+        });
+    }
+
+    /**
+     * Drop the user's hold, e.g. once their order has taken the stock.
+     * Runs in its own transaction, so it can be called after the order's has committed.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void release(User user) {
+        reservationRepository.deleteByUserId(user.getId());
+        Hold hold = holdsByUser.remove(user.getId());
+        if (hold != null) {
+            releaseCounts(hold);
+        }
+    }
+
+    /**
+     * When the user's current hold expires, if they have one
+     */
+    public Optional<Instant> getHoldExpiry(User user) {
+        return Optional.ofNullable(holdsByUser.get(user.getId())).map(Hold::expiresAt);
+    }
+
+    /**
+     * Units of each product held by customers other than the given user
+     * @param user customer whose own hold is not counted (may be null)
+     * @param productIds products to look up
+     * @return product ID -> units held by others (products without holds are omitted)
+     */
+    public Map<Integer, Integer> getHeldByOthers(User user, Collection<Integer> productIds) {
+        Hold own = user == null ? null : holdsByUser.get(user.getId());
+        Map<Integer, Integer> held = new LinkedHashMap<>();
+        for (Integer productId : productIds) {
+            int others = heldByProduct.getOrDefault(productId, 0)
+                    - (own == null ? 0 : own.quantities().getOrDefault(productId, 0));
+            if (others > 0) {
+                held.put(productId, others);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Stock the given user can still buy: on-hand quantity minus other customers' holds
+     */
+    public int getAvailableToSell(Product product, User user) {
+        int heldByOthers = getHeldByOthers(user, List.of(product.getProductId())).getOrDefault(product.getProductId(), 0);
+        return Math.max(0, product.getQuantity() - heldByOthers);
+    }
+
+    /**
+     * Release holds whose TTL has passed
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.reservation.sweep-interval-ms:30000}",
+               initialDelayString = "${grocerystore.reservation.sweep-interval-ms:30000}")
+    @Transactional
+    public void releaseExpiredHolds() {
+        Instant now = Instant.now();
+        int released = 0;
+        for (Map.Entry<Integer, Hold> entry : holdsByUser.entrySet()) {
+            Hold hold = entry.getValue();
+            // Conditional remove, so a hold renewed since we read it is kept
+            if (!hold.expiresAt().isAfter(now) && holdsByUser.remove(entry.getKey(), hold)) {
+                releaseCounts(hold);
+                released++;
+            }
+        }
+        reservationRepository.deleteExpired(now);
+        if (released > 0) {
+            expiredHolds.add(released);
+            logger.debug("Released {} expired stock reservation holds", released);
+        }
+    }
+
+    /**
+     * Number of holds and units currently held, and holds released on expiry so far
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeHolds", holdsByUser.size());
+        stats.put("heldUnits", heldByProduct.values().stream().mapToInt(Integer::intValue).sum());
+        stats.put("expiredHolds", expiredHolds.sum());
+        return stats;
+    }
+
+    /**
+     * Add a hold on one product if enough unheld stock remains; atomic per product
+     */
+    private boolean tryHold(Integer productId, int quantity, int onHand) {
+        boolean[] held = {false};
+        heldByProduct.compute(productId, (id, current) -> {
+            int alreadyHeld = current == null ? 0 : current;
+            if (onHand - alreadyHeld < quantity) {
+                return current;
+            }
+            held[0] = true;
+            return alreadyHeld + quantity;
+        });
+        return held[0];
+    }
+
+    private void releaseCounts(Hold hold) {
+        hold.quantities().forEach((productId, quantity) ->
+                heldByProduct.computeIfPresent(productId, (id, current) -> current > quantity ? current - quantity : null));
+    }
+
+    private record Hold(Map<Integer, Integer> quantities, Instant expiresAt) {
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -110,6 +111,7 @@ public class UserService {
      * @param pageable pagination information
      * @return page of users
      */
+    @Transactional(readOnly = true)
     public Page<User> getAllUsers(Pageable pageable) {
         return userRepository.findAll(pageable);
     }
@@ -120,6 +122,7 @@ public class UserService {
      * @param pageable pagination information
      * @return page of matching users
      */
+    @Transactional(readOnly = true)
     public Page<User> searchUsers(String searchTerm, Pageable pageable) {
         return userRepository.searchUsers(searchTerm, pageable);
     }
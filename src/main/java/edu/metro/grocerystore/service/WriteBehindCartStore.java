@@ -0,0 +1,441 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.model.CartItem;
+import edu.metro.grocerystore.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional in-memory home for active carts (grocerystore.cart.write-behind.enabled).
+ * Cart changes are applied to memory and appended to a local journal, and the carts
+ * changed since the last flush are written to carts/cart_items in JDBC batches on an
+ * interval, so any number of changes to a cart costs one rewrite of it.
+ * On startup the journal is replayed over the database copy, so changes that were not
+ * flushed before a crash are not lost. Carts idle for a while are dropped from memory
+ * once they have been flushed.
+ */
+@Component
+public class WriteBehindCartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long idleEvictMs;
+    private final Path journalPath;
+    // Journal entries already taken by a flush that has not yet reached the database
+    private final Path pendingJournalPath;
+
+    // User ID -> that user's cart
+    private final Map<Integer, ActiveCart> carts = new ConcurrentHashMap<>();
+    private final Object journalLock = new Object();
+    private final Object flushLock = new Object();
+    private BufferedWriter journal;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder cartsWritten = new LongAdder();
+    private final LongAdder itemRowsWritten = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public WriteBehindCartStore(CartRepository cartRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${grocerystore.cart.write-behind.enabled:false}") boolean enabled,
+                                @Value("${grocerystore.cart.write-behind.idle-evict-ms:1800000}") long idleEvictMs,
+                                @Value("${grocerystore.cart.write-behind.journal:./db_test/cart-journal.log}") String journalPath) {
+        this.cartRepository = cartRepository;
+        // Flushes may run from an afterCommit callback, where the finished transaction is still bound
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.idleEvictMs = idleEvictMs;
+        this.journalPath = Paths.get(journalPath);
+        this.pendingJournalPath = Paths.get(journalPath + ".pending");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replay changes journaled before the last shutdown or crash, then write them out
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayJournal() {
+        if (!enabled) {
+            return;
+        }
+        int replayed = 0;
+        for (Path path : List.of(pendingJournalPath, journalPath)) {
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    if (applyJournalLine(line)) {
+                        replayed++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read cart journal " + path, e);
+            }
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} cart changes from the journal", replayed);
+        }
+        flush();
+    }
+
+    /**
+     * Whether the user's cart is currently held in memory
+     */
+    public boolean isActive(Integer userId) {
+        return carts.containsKey(userId);
+    }
+
+    /**
+     * Product ID -> quantity in the user's cart, in the order the products were added
+     */
+    public Map<Integer, Integer> getQuantities(Integer userId) {
+        ActiveCart cart = cart(userId);
+        synchronized (cart) {
+            cart.lastAccess = System.currentTimeMillis();
+            return new LinkedHashMap<>(cart.quantities);
+        }
+    }
+
+    /**
+     * Total quantity across the user's cart
+     */
+    public int getItemCount(Integer userId) {
+        ActiveCart cart = cart(userId);
+        synchronized (cart) {
+            return cart.quantities.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    /**
+     * Set the quantity of one product in the user's cart (0 removes it)
+     */
+    public void setQuantity(Integer userId, Integer productId, int quantity) {
+        while (true) {
+            ActiveCart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                appendToJournal("S " + userId + " " + productId + " " + quantity);
+                apply(cart, productId, quantity);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add to the quantity of one product in the user's cart, unless the result would exceed a limit
+     * @return false (and no change) when the new quantity would be above maxQuantity
+     */
+    public boolean addQuantity(Integer userId, Integer productId, int quantity, int maxQuantity) {
+        while (true) {
+            ActiveCart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                int newQuantity = cart.quantities.getOrDefault(productId, 0) + quantity;
+                if (newQuantity > maxQuantity) {
+                    return false;
+                }
+                appendToJournal("S " + userId + " " + productId + " " + newQuantity);
+                apply(cart, productId, newQuantity);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Add several products to the user's cart, all or none: every line is checked against
+     * its limit before any is applied, and the lines are journaled in one write
+     * @param limits product ID -> most units the cart may hold
+     * @return false (and no change) when any new quantity would be above its limit
+     */
+    public boolean addAll(Integer userId, Map<Integer, Integer> additions, Map<Integer, Integer> limits) {
+        while (true) {
+            ActiveCart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                Map<Integer, Integer> newQuantities = new LinkedHashMap<>();
+                for (Map.Entry<Integer, Integer> addition : additions.entrySet()) {
+                    int newQuantity = cart.quantities.getOrDefault(addition.getKey(), 0) + addition.getValue();
+                    if (newQuantity > limits.get(addition.getKey())) {
+                        return false;
+                    }
+                    newQuantities.put(addition.getKey(), newQuantity);
+                }
+                StringJoiner lines = new StringJoiner(System.lineSeparator());
+                newQuantities.forEach((productId, quantity) -> lines.add("S " + userId + " " + productId + " " + quantity));
+                appendToJournal(lines.toString());
+                newQuantities.forEach((productId, quantity) -> apply(cart, productId, quantity));
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Empty the user's cart
+     */
+    public void clear(Integer userId) {
+        while (true) {
+            ActiveCart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                appendToJournal("C " + userId);
+                apply(cart, null, 0);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write every cart changed since the last flush, and drop flushed carts that have been idle
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.cart.write-behind.flush-interval-ms:5000}",
+               initialDelayString = "${grocerystore.cart.write-behind.flush-interval-ms:5000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            // Changes journaled from here on belong to the next flush
+            rotateJournal();
+
+            Map<Integer, Map<Integer, Integer>> snapshot = new HashMap<>();
+            long idleBefore = System.currentTimeMillis() - idleEvictMs;
+            for (Map.Entry<Integer, ActiveCart> entry : carts.entrySet()) {
+                ActiveCart cart = entry.getValue();
+                synchronized (cart) {
+                    if (cart.dirty) {
+                        snapshot.put(entry.getKey(), new LinkedHashMap<>(cart.quantities));
+                        cart.dirty = false;
+                    } else if (cart.lastAccess < idleBefore) {
+                        cart.evicted = true;
+                        carts.remove(entry.getKey(), cart);
+                        evictions.increment();
+                    }
+                }
+            }
+
+            if (!snapshot.isEmpty()) {
+                try {
+                    Integer rows = transactionTemplate.execute(status -> cartRepository.replaceCarts(snapshot));
+                    flushes.increment();
+                    cartsWritten.add(snapshot.size());
+                    itemRowsWritten.add(rows == null ? 0 : rows);
+                } catch (RuntimeException e) {
+                    // Keep the journal and try these carts again next time
+                    failedFlushes.increment();
+                    for (Integer userId : snapshot.keySet()) {
+                        ActiveCart cart = carts.get(userId);
+                        if (cart != null) {
+                            synchronized (cart) {
+                                cart.dirty = true;
+                            }
+                        }
+                    }
+                    logger.warn("Could not flush {} carts, will retry: {}", snapshot.size(), e.getMessage());
+                    return;
+                }
+            }
+            try {
+                Files.deleteIfExists(pendingJournalPath);
+            } catch (IOException e) {
+                logger.warn("Could not delete flushed cart journal {}: {}", pendingJournalPath, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write out outstanding changes before the application stops
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        synchronized (journalLock) {
+            closeJournal();
+        }
+    }
+
+    /**
+     * Cart, change and flush counters
+     */
+    public Map<String, Object> getStats() {
+        long dirty = carts.values().stream().filter(cart -> cart.dirty).count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("activeCarts", carts.size());
+        stats.put("dirtyCarts", dirty);
+        stats.put("loads", loads.sum());
+        stats.put("changes", changes.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("cartsWritten", cartsWritten.sum());
+        stats.put("itemRowsWritten", itemRowsWritten.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * The user's cart, loaded from the database on first use
+     */
+    private ActiveCart cart(Integer userId) {
+        ActiveCart cart = carts.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        // Load outside the map so a slow query does not block other users' carts
+        ActiveCart loaded = new ActiveCart();
+        cartRepository.findWithItemsByUserId(userId).ifPresent(stored -> {
+            for (CartItem item : stored.getCartItems()) {
+                loaded.quantities.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+            }
+        });
+        loads.increment();
+        cart = carts.putIfAbsent(userId, loaded);
+        return cart != null ? cart : loaded;
+    }
+
+    /**
+     * Apply a change to a cart whose lock is held; a null product ID clears the cart
+     */
+    private void apply(ActiveCart cart, Integer productId, int quantity) {
+        if (productId == null) {
+            cart.quantities.clear();
+        } else if (quantity <= 0) {
+            cart.quantities.remove(productId);
+        } else {
+            cart.quantities.put(productId, quantity);
+        }
+        cart.dirty = true;
+        cart.lastAccess = System.currentTimeMillis();
+        changes.increment();
+    }
+
+    private boolean applyJournalLine(String line) {
+        String[] parts = line.trim().split(" ");
+        try {
+            if (parts.length == 4 && parts[0].equals("S")) {
+                ActiveCart cart = cart(Integer.valueOf(parts[1]));
+                synchronized (cart) {
+                    apply(cart, Integer.valueOf(parts[2]), Integer.parseInt(parts[3]));
+                }
+                return true;
+            }
+            if (parts.length == 2 && parts[0].equals("C")) {
+                ActiveCart cart = cart(Integer.valueOf(parts[1]));
+                synchronized (cart) {
+                    apply(cart, null, 0);
+                }
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through: a line cut short by a crash
+        }
+        if (!line.isBlank()) {
+            logger.warn("Skipping unreadable cart journal line: {}", line);
+        }
+        return false;
+    }
+
+    private void appendToJournal(String line) {
+        synchronized (journalLock) {
+            try {
+                if (journal == null) {
+                    journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                journal.write(line);
+                journal.newLine();
+                journal.flush();
+            } catch (IOException e) {
+                closeJournal();
+                throw new IllegalStateException("Could not save cart change, please try again", e);
+            }
+        }
+    }
+
+    /**
+     * Move the live journal to the pending file (appending to entries left by a failed flush)
+     */
+    private void rotateJournal() {
+        synchronized (journalLock) {
+            closeJournal();
+            try {
+                if (!Files.exists(journalPath)) {
+                    return;
+                }
+                if (Files.exists(pendingJournalPath)) {
+                    Files.write(pendingJournalPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+                    Files.delete(journalPath);
+                } else {
+                    Files.move(journalPath, pendingJournalPath, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not rotate cart journal {}: {}", journalPath, e.getMessage());
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn("Could not close cart journal: {}", e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private static final class ActiveCart {
+        // Product ID -> quantity, guarded by the ActiveCart's own lock
+        private final Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        private volatile boolean dirty;
+        private boolean evicted;
+        private long lastAccess = System.currentTimeMillis();
+    }
+}
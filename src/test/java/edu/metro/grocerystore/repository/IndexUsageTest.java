@@ -0,0 +1,242 @@
+package edu.metro.grocerystore.repository;
+
+import edu.metro.grocerystore.model.OrderStatus;
+import edu.metro.grocerystore.model.User;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs each hot repository lookup, captures the SQL and parameters it sends to the database,
+ * and runs EXPLAIN on every captured statement. Fails if H2 plans a full table scan, or does
+ * not pick the index expected for the lookup (a pattern, since H2 may choose the foreign key's
+ * own index over a declared index with the same leading column).
+ * Uses a fresh in-memory database so the schema comes from the entity mappings alone.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-usage;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+class IndexUsageTest {
+
+    private static final Instant NOW = Instant.now();
+    private static final Instant WEEK_AGO = NOW.minus(7, ChronoUnit.DAYS);
+    private static final PageRequest NEWEST_FIRST = PageRequest.of(0, 10, Sort.by("createdAt").descending());
+    // Either index whose leading column is orders.user_id
+    private static final String ORDERS_BY_USER = "(idx_orders_user_created|fk\\w+_INDEX_\\w+): user_id = ";
+
+    // Statements sent while capturing, with their bound parameters in order
+    private static final List<CapturedStatement> captured = new ArrayList<>();
+    private static volatile boolean capturing = false;
+
+    @Autowired
+    private Repositories repositories;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    static Stream<Arguments> hotQueries() {
+        User user = new User();
+        user.setId(1);
+        return Stream.of(
+                lookup("ProductRepository.findActiveCardsByCategoryId (category page)", "idx_products_category_active",
+                        r -> r.products.findActiveCardsByCategoryId(1, PageRequest.of(0, 12, Sort.by("name")))),
+                lookup("ProductRepository.findCardsByProductIdIn (search and keyset pages)", null,
+                        r -> r.products.findCardsByProductIdIn(List.of(1, 2, 3))),
+                lookup("ProductRepository.findBySkuAndIsActiveTrue", "idx_products_sku",
+                        r -> r.products.findBySkuAndIsActiveTrue("SKU-1")),
+                lookup("OrderRepository.findOrderSummariesByUser (customer order page)", ORDERS_BY_USER,
+                        r -> r.orders.findOrderSummariesByUser(user, NEWEST_FIRST)),
+                lookup("OrderRepository.findOrderSummariesByUserAndDateRange", ORDERS_BY_USER,
+                        r -> r.orders.findOrderSummariesByUserAndDateRange(user, WEEK_AGO, NOW, NEWEST_FIRST)),
+                lookup("OrderRepository.findOrderSummariesByUserAndStatus", ORDERS_BY_USER,
+                        r -> r.orders.findOrderSummariesByUserAndStatus(user, OrderStatus.ACTIVE, NEWEST_FIRST)),
+                lookup("OrderRepository.findOrderSummariesByStatus", "idx_orders_status_created",
+                        r -> r.orders.findOrderSummariesByStatus(OrderStatus.ACTIVE, NEWEST_FIRST)),
+                lookup("OrderRepository.findOrderSummariesByDateRangeAndStatus", "idx_orders_status_created",
+                        r -> r.orders.findOrderSummariesByDateRangeAndStatus(WEEK_AGO, NOW, OrderStatus.ACTIVE, NEWEST_FIRST)),
+                lookup("OrderRepository.findOrderSummariesByDateRange", "idx_orders_created",
+                        r -> r.orders.findOrderSummariesByDateRange(WEEK_AGO, NOW, NEWEST_FIRST)),
+                lookup("OrderRepository.scrollOrderSummaries (customer keyset page)", ORDERS_BY_USER,
+                        r -> r.orders.scrollOrderSummaries(user, null, null, null, null, "createdAt", "DESC",
+                                Map.of("createdAt", NOW, "orderId", 100), 11)),
+                lookup("OrderRepository.scrollOrderSummaries (all orders keyset page)", "idx_orders_created",
+                        r -> r.orders.scrollOrderSummaries(null, null, null, null, null, "createdAt", "DESC",
+                                Map.of("createdAt", NOW, "orderId", 100), 11)),
+                lookup("CartRepository.findItemCountByUserId (header badge)", null,
+                        r -> r.carts.findItemCountByUserId(1)),
+                lookup("CartWriteRepository.lockAbandonedCarts", null,
+                        r -> r.carts.lockAbandonedCarts(NOW, 0, 200)),
+                lookup("StockReservationRepository.deleteByUserId", "idx_stock_reservations_user",
+                        r -> r.reservations.deleteByUserId(1)),
+                lookup("StockReservationRepository.findByExpiresAtAfter", "idx_stock_reservations_expires",
+                        r -> r.reservations.findByExpiresAtAfter(NOW)),
+                lookup("StockReservationRepository.deleteExpired", "idx_stock_reservations_expires",
+                        r -> r.reservations.deleteExpired(WEEK_AGO))
+        );
+    }
+
+    private static Arguments lookup(String name, String expectedIndex, Consumer<Repositories> call) {
+        return Arguments.of(name, expectedIndex == null ? null : Pattern.compile(expectedIndex), call);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void hotQueryUsesIndex(String name, Pattern expectedIndex, Consumer<Repositories> call) {
+        List<CapturedStatement> statements = capture(call);
+        assertFalse(statements.isEmpty(), () -> name + " sent no statements");
+
+        for (CapturedStatement statement : statements) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement.sql(), String.class,
+                    statement.parameters().toArray());
+
+            assertFalse(plan.contains("tableScan"), () -> "Full table scan for " + name + ":\n" + plan);
+            if (expectedIndex != null) {
+                assertTrue(expectedIndex.matcher(plan).find(), () -> "Expected " + expectedIndex + " for " + name + ":\n" + plan);
+            }
+        }
+    }
+
+    /**
+     * Run the lookup in a transaction that is rolled back, and return the statements it sent
+     */
+    private List<CapturedStatement> capture(Consumer<Repositories> call) {
+        synchronized (captured) {
+            captured.clear();
+        }
+        capturing = true;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                call.accept(repositories);
+                status.setRollbackOnly();
+            });
+        } finally {
+            capturing = false;
+        }
+        synchronized (captured) {
+            return captured.stream()
+                    .filter(s -> !s.sql().toLowerCase(Locale.ROOT).startsWith("insert"))
+                    .toList();
+        }
+    }
+
+    record CapturedStatement(String sql, List<Object> parameters) {
+    }
+
+    /**
+     * The repositories under test, handed to each lookup
+     */
+    static class Repositories {
+        final ProductRepository products;
+        final OrderRepository orders;
+        final CartRepository carts;
+        final StockReservationRepository reservations;
+
+        Repositories(ProductRepository products, OrderRepository orders, CartRepository carts,
+                     StockReservationRepository reservations) {
+            this.products = products;
+            this.orders = orders;
+            this.carts = carts;
+            this.reservations = reservations;
+        }
+    }
+
+    /**
+     * Wraps the DataSource so every prepared statement executed while capturing is recorded
+     * with its parameters
+     */
+    @TestConfiguration
+    static class StatementCapture {
+
+        @Bean
+        Repositories repositories(ProductRepository products, OrderRepository orders, CartRepository carts,
+                                  StockReservationRepository reservations) {
+            return new Repositories(products, orders, carts, reservations);
+        }
+
+        @Bean
+        static BeanPostProcessor statementCapturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, dataSource, (method, args, result) -> result instanceof Connection connection
+                            ? proxy(Connection.class, connection, (connectionMethod, connectionArgs, statement) ->
+                                    statement instanceof PreparedStatement prepared && connectionMethod.getName().equals("prepareStatement")
+                                            ? capturingStatement(prepared, (String) connectionArgs[0]) : statement)
+                            : result);
+                }
+            };
+        }
+
+        private static PreparedStatement capturingStatement(PreparedStatement statement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCapture.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                            parameters.put(index, name.equals("setNull") ? null : args[1]);
+                        } else if (name.startsWith("execute") && capturing) {
+                            synchronized (captured) {
+                                captured.add(new CapturedStatement(sql, new ArrayList<>(parameters.values())));
+                            }
+                        } else if (name.equals("clearParameters")) {
+                            parameters.clear();
+                        }
+                        return invoke(method, statement, args);
+                    });
+        }
+
+        private interface ResultWrapper {
+            Object wrap(Method method, Object[] args, Object result);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, ResultWrapper wrapper) {
+            return (T) Proxy.newProxyInstance(StatementCapture.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> wrapper.wrap(method, args, invoke(method, target, args)));
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.metro.grocerystore.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks which database serves each kind of transaction. The "replica" is the same
+ * in-memory H2 database reached as a user that may only read, so the two can be told
+ * apart by the user of the connection in use.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;"
+                + "INIT=CREATE USER IF NOT EXISTS replica_reader PASSWORD 'reader'\\\\;GRANT SELECT ON SCHEMA public TO replica_reader",
+        "spring.datasource.username=sa",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "grocerystore.datasource.replica.url=jdbc:h2:mem:routing;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "grocerystore.datasource.replica.username=replica_reader",
+        "grocerystore.datasource.replica.password=reader"
+})
+class ReadOnlyRoutingTest {
+
+    private static final String PRIMARY = "SA";
+    private static final String REPLICA = "REPLICA_READER";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertEquals(REPLICA, connectionUserIn(true, null));
+        assertEquals(PRIMARY, connectionUserIn(false, null));
+    }
+
+    @Test
+    void repositoryReadOnlyTransactionsUsePrimary() {
+        assertEquals(PRIMARY, connectionUserIn(true, "org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById"));
+    }
+
+    @Test
+    void writeAfterReadInSameEntityManagerUsesPrimary() {
+        // Same setup as open-session-in-view: one EntityManager across the request's transactions
+        EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+        try {
+            assertEquals(REPLICA, connectionUserIn(true, null));
+            assertEquals(PRIMARY, connectionUserIn(false, null));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            EntityManagerFactoryUtils.closeEntityManager(requestEntityManager);
+        }
+    }
+
+    @Test
+    void bothPoolsTakeHikariSettings() {
+        ReadOnlyRoutingDataSource routing = (ReadOnlyRoutingDataSource)
+                ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+        assertEquals(2, routing.getResolvedDataSources().size());
+        routing.getResolvedDataSources().values()
+                .forEach(pool -> assertEquals(4, ((HikariDataSource) pool).getMaximumPoolSize()));
+    }
+
+    private String connectionUserIn(boolean readOnly, String transactionName) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        transaction.setName(transactionName);
+        return transaction.execute(status -> entityManager.unwrap(Session.class)
+                .doReturningWork(connection -> connection.getMetaData().getUserName()));
+    }
+}
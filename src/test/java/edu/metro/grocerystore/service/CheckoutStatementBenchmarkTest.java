@@ -0,0 +1,183 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.CartLine;
+import edu.metro.grocerystore.model.Order;
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.model.ProductCategory;
+import edu.metro.grocerystore.model.User;
+import edu.metro.grocerystore.repository.ProductCategoryRepository;
+import edu.metro.grocerystore.repository.ProductRepository;
+import edu.metro.grocerystore.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the statements sent to the database for a checkout and for a bulk product import.
+ * A JDBC batch counts as one statement, since it is one round trip. With identity IDs every
+ * inserted row is its own statement; with pooled sequences Hibernate batches them.
+ * Tagged as a benchmark, so it runs only with -Pbenchmark.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+@Tag("benchmark")
+class CheckoutStatementBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutStatementBenchmarkTest.class);
+
+    private static final int CHECKOUT_LINES = 30;
+    private static final int IMPORTED_PRODUCTS = 200;
+
+    private static final AtomicInteger statements = new AtomicInteger();
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void checkoutStatements() {
+        User user = userRepository.findByEmail("john.doe@example.com").orElseThrow();
+        ProductCategory category = categoryRepository.findAll().get(0);
+        transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(newProducts("CHECKOUT", CHECKOUT_LINES, category)));
+        List<CartLine> lines = new ArrayList<>();
+        for (Product product : productRepository.findAll()) {
+            if (product.getSku().startsWith("CHECKOUT-")) {
+                lines.add(new CartLine(product.getProductId(), 1));
+            }
+        }
+        cartService.addProductsToCart(user, lines);
+
+        statements.set(0);
+        Order order = orderService.createOrderFromCart(user, "Main Street");
+        int count = statements.get();
+
+        logger.info("Checkout of {} lines: {} statements", CHECKOUT_LINES, count);
+        assertEquals(CHECKOUT_LINES, order.getOrderItems().size());
+        assertTrue(count < 20, () -> "Checkout took " + count + " statements");
+    }
+
+    @Test
+    void bulkImportStatements() {
+        ProductCategory category = categoryRepository.findAll().get(0);
+        List<Product> products = newProducts("IMPORT", IMPORTED_PRODUCTS, category);
+
+        statements.set(0);
+        transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(products));
+        int count = statements.get();
+
+        logger.info("Import of {} products: {} statements", IMPORTED_PRODUCTS, count);
+        assertTrue(count <= IMPORTED_PRODUCTS / 10, () -> "Import took " + count + " statements");
+    }
+
+    private static List<Product> newProducts(String skuPrefix, int count, ProductCategory category) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product("Benchmark product " + i, skuPrefix + "-" + i,
+                    new BigDecimal("1.99"), 100, category);
+            product.setIsActive(true);
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Wraps the DataSource so every statement executed through it is counted
+     */
+    @TestConfiguration
+    static class StatementCounting {
+
+        private static final Set<String> EXECUTE_METHODS =
+                Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, dataSource, result -> result instanceof Connection connection
+                            ? proxy(Connection.class, connection, statement -> statement instanceof Statement s
+                                    ? proxyStatement(s) : statement)
+                            : result);
+                }
+            };
+        }
+
+        private static Object proxyStatement(Statement statement) {
+            return Proxy.newProxyInstance(StatementCounting.class.getClassLoader(), new Class<?>[]{statementType(statement)},
+                    (proxy, method, args) -> {
+                        if (EXECUTE_METHODS.contains(method.getName())) {
+                            statements.incrementAndGet();
+                        }
+                        return invoke(method, statement, args);
+                    });
+        }
+
+        private static Class<?> statementType(Statement statement) {
+            if (statement instanceof CallableStatement) {
+                return CallableStatement.class;
+            }
+            if (statement instanceof PreparedStatement) {
+                return PreparedStatement.class;
+            }
+            return Statement.class;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, UnaryOperator<Object> wrapResult) {
+            return (T) Proxy.newProxyInstance(StatementCounting.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> wrapResult.apply(invoke(method, target, args)));
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.model.ProductCategory;
+import edu.metro.grocerystore.repository.ProductCategoryRepository;
+import edu.metro.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Measures home page latency as the catalog grows. The page is served from the precomputed
+ * feed, so its latency should stay flat; reading the full active catalog, as the page used
+ * to, is timed alongside for comparison. Tagged as a benchmark, so it runs only with -Pbenchmark.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:home-page-benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+@AutoConfigureMockMvc
+@Tag("benchmark")
+class HomePageLatencyBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomePageLatencyBenchmarkTest.class);
+
+    private static final int[] CATALOG_SIZES = {500, 2000, 8000};
+    private static final int WARMUP_REQUESTS = 100;
+    private static final int MEASURED_REQUESTS = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HomeFeedService homeFeedService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void homePageLatencyStaysFlatAsCatalogGrows() throws Exception {
+        List<ProductCategory> categories = categoryRepository.findAll();
+        double[] homeMedians = new double[CATALOG_SIZES.length];
+
+        for (int i = 0; i < CATALOG_SIZES.length; i++) {
+            growCatalogTo(CATALOG_SIZES[i], categories);
+            homeFeedService.rebuild();
+
+            for (int r = 0; r < WARMUP_REQUESTS; r++) {
+                mockMvc.perform(get("/")).andExpect(status().isOk());
+            }
+            long[] homeNanos = new long[MEASURED_REQUESTS];
+            for (int r = 0; r < MEASURED_REQUESTS; r++) {
+                long start = System.nanoTime();
+                mockMvc.perform(get("/")).andExpect(status().isOk());
+                homeNanos[r] = System.nanoTime() - start;
+            }
+            long[] fullCatalogNanos = new long[10];
+            for (int r = 0; r < fullCatalogNanos.length; r++) {
+                long start = System.nanoTime();
+                productService.getAllActiveProducts();
+                fullCatalogNanos[r] = System.nanoTime() - start;
+            }
+
+            homeMedians[i] = medianMillis(homeNanos);
+            logger.info(String.format(Locale.ROOT,
+                    "Catalog of %d products: home page median %.2f ms, p95 %.2f ms; full catalog read median %.2f ms",
+                    productRepository.count(), homeMedians[i], percentileMillis(homeNanos, 0.95),
+                    medianMillis(fullCatalogNanos)));
+        }
+
+        double smallest = homeMedians[0];
+        double largest = homeMedians[CATALOG_SIZES.length - 1];
+        // Generous bound, since timings are noisy; the catalog grows 16x over these sizes
+        assertTrue(largest <= smallest * 3 + 10,
+                () -> String.format("Home page median grew from %.2f ms to %.2f ms", smallest, largest));
+    }
+
+    private void growCatalogTo(int size, List<ProductCategory> categories) {
+        int existing = (int) productRepository.count();
+        List<Product> products = new ArrayList<>();
+        for (int i = existing; i < size; i++) {
+            Product product = new Product("Benchmark product " + i, "HOME-" + i,
+                    new BigDecimal("2.49"), 50, categories.get(i % categories.size()));
+            product.setIsActive(true);
+            products.add(product);
+        }
+        transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(products));
+    }
+
+    private static double medianMillis(long[] nanos) {
+        return percentileMillis(nanos, 0.5);
+    }
+
+    private static double percentileMillis(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * percentile) - 1] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,150 @@
+package edu.metro.grocerystore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyKeyStoreTest {
+
+    private static final long TTL_MS = 3_600_000;
+    private static final long WAIT_MS = 10_000;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicateWaitsForFirstResult() throws Exception {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(TTL_MS, 100, WAIT_MS);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> store.execute("key", () -> {
+                firstStarted.countDown();
+                await(releaseFirst);
+                return runs.incrementAndGet();
+            }));
+            assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+            Future<Integer> duplicate = executor.submit(() -> store.execute("key", runs::incrementAndGet));
+
+            // The duplicate must block on the running request rather than run again
+            Thread.sleep(100);
+            assertFalse(duplicate.isDone());
+            releaseFirst.countDown();
+
+            assertEquals(1, first.get(10, TimeUnit.SECONDS));
+            assertEquals(1, duplicate.get(10, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+            assertEquals(1L, store.getStats().get("replays"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedAttemptIsForgotten() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(TTL_MS, 100, WAIT_MS);
+
+        assertThrows(IllegalArgumentException.class, () -> store.execute("key", () -> {
+            runs.incrementAndGet();
+            throw new IllegalArgumentException("Insufficient stock");
+        }));
+        assertEquals(0, store.getStats().get("entries"));
+
+        assertEquals(2, store.execute("key", runs::incrementAndGet));
+        assertEquals(2, store.execute("key", runs::incrementAndGet));
+        assertEquals(1, store.getStats().get("entries"));
+    }
+
+    @Test
+    void attemptFailingWithErrorIsForgottenAndReleasesWaiters() throws Exception {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(TTL_MS, 100, WAIT_MS);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> store.execute("key", () -> {
+                firstStarted.countDown();
+                await(releaseFirst);
+                throw new StackOverflowError();
+            }));
+            assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+            Future<Integer> duplicate = executor.submit(() -> store.execute("key", runs::incrementAndGet));
+            Thread.sleep(100);
+            releaseFirst.countDown();
+
+            ExecutionException firstFailure = assertThrows(ExecutionException.class,
+                    () -> first.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, firstFailure.getCause());
+            assertThrows(ExecutionException.class, () -> duplicate.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, store.getStats().get("entries"));
+        assertEquals(1, store.execute("key", runs::incrementAndGet));
+    }
+
+    @Test
+    void expiredKeyRunsAgain() throws Exception {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(20, 100, WAIT_MS);
+        assertEquals(1, store.execute("key", runs::incrementAndGet));
+        assertEquals(1, store.execute("key", runs::incrementAndGet));
+
+        Thread.sleep(40);
+        assertEquals(2, store.execute("key", runs::incrementAndGet));
+    }
+
+    @Test
+    void evictsOldestKeysOverCapacity() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(TTL_MS, 3, WAIT_MS);
+        for (int i = 0; i < 5; i++) {
+            store.execute("key-" + i, runs::incrementAndGet);
+        }
+        assertEquals(3, store.getStats().get("entries"));
+
+        // The newest keys are still answered from the store, the oldest run again
+        assertEquals(5, store.execute("key-4", runs::incrementAndGet));
+        assertEquals(3, store.execute("key-2", runs::incrementAndGet));
+        assertEquals(6, store.execute("key-0", runs::incrementAndGet));
+    }
+
+    @Test
+    void retriedKeyKeepsItsRetryPlaceInEvictionOrder() {
+        IdempotencyKeyStore store = new IdempotencyKeyStore(TTL_MS, 3, WAIT_MS);
+        store.execute("first", runs::incrementAndGet);
+        assertThrows(IllegalStateException.class, () -> store.execute("retried", () -> {
+            throw new IllegalStateException("Payment failed");
+        }));
+        store.execute("older", runs::incrementAndGet);
+        store.execute("retried", runs::incrementAndGet);
+        store.execute("newer", runs::incrementAndGet);
+        store.execute("newest", runs::incrementAndGet);
+
+        // "older" was stored before the successful retry, so it is evicted first
+        assertEquals(3, store.execute("retried", runs::incrementAndGet));
+        assertEquals(4, store.execute("newer", runs::incrementAndGet));
+        assertEquals(5, store.execute("newest", runs::incrementAndGet));
+        assertEquals(6, store.execute("older", runs::incrementAndGet));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
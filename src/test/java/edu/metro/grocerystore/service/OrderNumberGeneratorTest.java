@@ -0,0 +1,96 @@
+package edu.metro.grocerystore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int NUMBERS_PER_THREAD = 50_000;
+
+    @Test
+    void numbersAreUniqueAcrossThreadsAndNodes() throws Exception {
+        // Two generators stand in for two application instances sharing one database
+        OrderNumberGenerator nodeA = new OrderNumberGenerator(1);
+        OrderNumberGenerator nodeB = new OrderNumberGenerator(2);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                OrderNumberGenerator generator = t % 2 == 0 ? nodeA : nodeB;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int duplicates = 0;
+                    String previous = "";
+                    for (int i = 0; i < NUMBERS_PER_THREAD; i++) {
+                        String number = generator.next();
+                        if (!seen.add(number)) {
+                            duplicates++;
+                        }
+                        // Within one node, each thread must observe increasing numbers
+                        assertTrue(number.compareTo(previous) > 0, number + " not after " + previous);
+                        previous = number;
+                    }
+                    return duplicates;
+                }));
+            }
+            start.countDown();
+
+            int duplicates = 0;
+            for (Future<Integer> result : results) {
+                duplicates += result.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(0, duplicates);
+            assertEquals(THREADS * NUMBERS_PER_THREAD, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void numbersKeepPrefixAndFixedWidth() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(OrderNumberGenerator.MAX_NODE_ID);
+        String number = generator.next();
+
+        assertTrue(number.startsWith(OrderNumberGenerator.PREFIX));
+        assertEquals(OrderNumberGenerator.PREFIX.length() + 13, number.length());
+        assertTrue(number.substring(OrderNumberGenerator.PREFIX.length()).matches("[0-9A-Z]+"));
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextMillisecond() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(7);
+        int perMillisecond = 1 << OrderNumberGenerator.SEQUENCE_BITS;
+
+        // More IDs than one millisecond can hold, generated faster than the clock ticks
+        long previous = generator.nextId();
+        for (int i = 0; i < perMillisecond * 3; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(7, (id >>> OrderNumberGenerator.SEQUENCE_BITS) & OrderNumberGenerator.MAX_NODE_ID);
+            previous = id;
+        }
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderNumberGenerator(OrderNumberGenerator.MAX_NODE_ID + 1));
+    }
+}
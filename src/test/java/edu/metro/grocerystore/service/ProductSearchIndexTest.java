@@ -0,0 +1,167 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.DTO.PriceBucketCount;
+import edu.metro.grocerystore.DTO.ProductSearchCriteria;
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.model.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductSearchIndexTest {
+
+    private static final int FRUIT = 1;
+    private static final int DRINKS = 2;
+
+    private static final int APPLES = 1;
+    private static final int BANANAS = 2;
+    private static final int WATER = 3;
+    private static final int JUICE = 4;
+    private static final int WINE = 5;
+    private static final int RETIRED = 6;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void buildIndex() {
+        index = new ProductSearchIndex(null);
+        index.index(product(APPLES, "Organic Fuji Apples", "Crisp and sweet", "FRUIT-APL", "1.50", 40, FRUIT));
+        index.index(product(BANANAS, "Organic Bananas", "Ripe yellow bunch", "FRUIT-BAN", "5.00", 0, FRUIT));
+        index.index(product(WATER, "Fuji Spring Water", "Still, 1.5 litre", "DRINK-WAT", "4.99", 100, DRINKS));
+        index.index(product(JUICE, "Orange Juice", "Not from concentrate", "DRINK-OJ", "10.00", 12, DRINKS));
+        index.index(product(WINE, "Red Wine", "Dry, from organic grapes", "DRINK-WIN", "25.00", 6, DRINKS));
+        Product retired = product(RETIRED, "Organic Kale", "Discontinued", "VEG-KAL", "3.00", 9, FRUIT);
+        retired.setIsActive(false);
+        index.index(retired);
+    }
+
+    @Test
+    void tokenizeLowercasesAndSplitsOnNonAlphanumerics() {
+        assertEquals(List.of("organic", "fuji", "apples", "3lb"), ProductSearchIndex.tokenize("Organic Fuji-Apples, 3lb!"));
+        assertEquals(List.of(), ProductSearchIndex.tokenize("  -- "));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(null));
+    }
+
+    @Test
+    void everyWordMustPrefixMatchNameDescriptionOrSku() {
+        assertEquals(List.of(APPLES, BANANAS, WINE), search("organ"));
+        assertEquals(List.of(APPLES), search("ORG fu"));
+        // Description and SKU words count too
+        assertEquals(List.of(JUICE), search("concentr"));
+        assertEquals(List.of(WATER), search("drink-wat"));
+        assertEquals(List.of(), search("organic water"));
+    }
+
+    @Test
+    void misspeltWordFallsBackToTrigramMatchOnNames() {
+        assertEquals(List.of(BANANAS), search("banannas"));
+        assertEquals(List.of(JUICE), search("oragne juice"));
+        // Too short to match fuzzily, and too far from any name word
+        assertEquals(List.of(), search("wx"));
+        assertEquals(List.of(), search("bnnnaaas"));
+    }
+
+    @Test
+    void facetsCountEveryFilterExceptTheirOwn() {
+        ProductSearchCriteria criteria = criteria(null);
+        criteria.setCategoryId(DRINKS);
+        criteria.setInStock(true);
+        ProductSearchIndex.SearchHits hits = index.search(criteria);
+
+        assertEquals(List.of(WATER, JUICE, WINE), hits.productIds());
+        // Category counts ignore the category filter, but not the stock filter or inactive products
+        assertEquals(Map.of(FRUIT, 1, DRINKS, 3), hits.categoryCounts());
+        assertEquals(List.of(0, 1, 0, 1, 1), bucketCounts(hits));
+        assertEquals(3, hits.inStockCount());
+    }
+
+    @Test
+    void priceOnBucketBoundIsCountedAndFilteredInTheUpperBucket() {
+        ProductSearchIndex.SearchHits all = index.search(criteria(null));
+        PriceBucketCount fiveToTen = all.priceBuckets().get(2);
+        assertEquals("$5 - $10", fiveToTen.getLabel());
+        assertEquals(1, fiveToTen.getCount());
+
+        ProductSearchCriteria bucket = criteria(null);
+        bucket.setMinPrice(fiveToTen.getMinPrice());
+        bucket.setPriceBelow(fiveToTen.getMaxPrice());
+        assertEquals(List.of(BANANAS), index.search(bucket).productIds());
+    }
+
+    @Test
+    void typedMaxPriceIsInclusive() {
+        ProductSearchCriteria upToFive = criteria(null);
+        upToFive.setMaxPrice(new BigDecimal("5"));
+        assertEquals(List.of(APPLES, BANANAS, WATER), index.search(upToFive).productIds());
+    }
+
+    @Test
+    void updateStockMovesProductBetweenStockFacets() {
+        ProductSearchCriteria inStock = criteria("organic");
+        inStock.setInStock(true);
+        assertEquals(List.of(APPLES, WINE), index.search(inStock).productIds());
+
+        index.updateStock(APPLES, 0);
+        index.updateStock(BANANAS, 8);
+        index.updateStock(999, 5);
+
+        ProductSearchIndex.SearchHits hits = index.search(inStock);
+        assertEquals(List.of(BANANAS, WINE), hits.productIds());
+        assertEquals(2, hits.inStockCount());
+
+        ProductSearchCriteria byQuantity = new ProductSearchCriteria("organic", null, null, null, 0, 12, "quantity", "ASC");
+        assertEquals(List.of(APPLES, WINE, BANANAS), index.search(byQuantity).productIds());
+    }
+
+    @Test
+    void searchAfterSeeksPastTheCursorKeys() {
+        ProductSearchCriteria byPrice = new ProductSearchCriteria(null, null, null, null, 0, 2, "price", "ASC");
+        assertEquals(List.of(APPLES, WATER), index.searchAfter(byPrice, Map.of(), 2));
+        assertEquals(List.of(BANANAS, JUICE),
+                index.searchAfter(byPrice, Map.of("price", new BigDecimal("4.99"), "productId", WATER), 2));
+
+        // Cursors hold the name as shown; the index compares it the way it sorts names
+        ProductSearchCriteria byName = new ProductSearchCriteria(null, null, null, null, 0, 5, "name", "ASC");
+        assertEquals(List.of(APPLES, WINE),
+                index.searchAfter(byName, Map.of("name", "Organic Bananas", "productId", BANANAS), 5));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> index.searchAfter(byName, Map.of("price", BigDecimal.ONE, "productId", WATER), 5));
+    }
+
+    @Test
+    void unknownSortFieldIsRejectedLikeTheDatabaseSearch() {
+        ProductSearchCriteria bySku = new ProductSearchCriteria(null, null, null, null, 0, 12, "sku", "ASC");
+        assertThrows(IllegalArgumentException.class, () -> index.search(bySku));
+        assertThrows(IllegalArgumentException.class, () -> index.searchAfter(bySku, Map.of(), 12));
+    }
+
+    private List<Integer> search(String searchTerm) {
+        return index.search(criteria(searchTerm)).productIds();
+    }
+
+    private static ProductSearchCriteria criteria(String searchTerm) {
+        return new ProductSearchCriteria(searchTerm, null, null, null, 0, 12, "productId", "ASC");
+    }
+
+    private static List<Integer> bucketCounts(ProductSearchIndex.SearchHits hits) {
+        return hits.priceBuckets().stream().map(PriceBucketCount::getCount).toList();
+    }
+
+    private static Product product(int id, String name, String description, String sku, String price,
+                                   int quantity, int categoryId) {
+        ProductCategory category = new ProductCategory("Category " + categoryId);
+        category.setCategoryId(categoryId);
+        Product product = new Product(name, sku, new BigDecimal(price), quantity, category);
+        product.setProductId(id);
+        product.setDescription(description);
+        product.setIsActive(true);
+        return product;
+    }
+}
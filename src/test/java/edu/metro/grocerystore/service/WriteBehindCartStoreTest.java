@@ -0,0 +1,184 @@
+package edu.metro.grocerystore.service;
+
+import edu.metro.grocerystore.model.Cart;
+import edu.metro.grocerystore.model.CartItem;
+import edu.metro.grocerystore.model.Product;
+import edu.metro.grocerystore.repository.CartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindCartStoreTest {
+
+    private static final int USER = 1;
+    private static final int OTHER_USER = 2;
+
+    @TempDir
+    Path dir;
+
+    private final StubCartDatabase database = new StubCartDatabase();
+
+    @Test
+    void replaysUnflushedChangesAfterCrash() throws Exception {
+        Path journal = dir.resolve("cart-journal.log");
+        WriteBehindCartStore beforeCrash = store(journal, 1_800_000);
+        beforeCrash.addQuantity(USER, 10, 2, 100);
+        beforeCrash.addQuantity(USER, 11, 1, 100);
+        beforeCrash.setQuantity(USER, 10, 5);
+        beforeCrash.addQuantity(OTHER_USER, 10, 3, 100);
+        beforeCrash.clear(OTHER_USER);
+        // The process dies mid-write: no flush, no shutdown, and a torn last line
+        Files.writeString(journal, "S 1 12", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertTrue(database.carts.isEmpty());
+
+        WriteBehindCartStore afterRestart = store(journal, 1_800_000);
+        afterRestart.replayJournal();
+
+        assertEquals(Map.of(10, 5, 11, 1), afterRestart.getQuantities(USER));
+        assertEquals(Map.of(), afterRestart.getQuantities(OTHER_USER));
+        // Replay writes the recovered carts out and retires the journal
+        assertEquals(Map.of(10, 5, 11, 1), database.carts.get(USER));
+        assertFalse(Files.exists(journal));
+        assertFalse(Files.exists(dir.resolve("cart-journal.log.pending")));
+    }
+
+    @Test
+    void failedFlushKeepsChangesUntilNextFlush() {
+        Path journal = dir.resolve("cart-journal.log");
+        WriteBehindCartStore store = store(journal, 1_800_000);
+        store.addQuantity(USER, 10, 2, 100);
+
+        database.failing = true;
+        store.flush();
+        assertEquals(1L, store.getStats().get("failedFlushes"));
+        assertEquals(1L, store.getStats().get("dirtyCarts"));
+        assertTrue(Files.exists(dir.resolve("cart-journal.log.pending")));
+
+        // Changes made while the database is down go to the live journal
+        store.addQuantity(USER, 11, 1, 100);
+        database.failing = false;
+        store.flush();
+
+        assertEquals(Map.of(10, 2, 11, 1), database.carts.get(USER));
+        assertEquals(0L, store.getStats().get("dirtyCarts"));
+        assertFalse(Files.exists(dir.resolve("cart-journal.log.pending")));
+    }
+
+    @Test
+    void crashAfterFailedFlushReplaysPendingAndLiveJournals() {
+        Path journal = dir.resolve("cart-journal.log");
+        WriteBehindCartStore beforeCrash = store(journal, 1_800_000);
+        beforeCrash.addQuantity(USER, 10, 2, 100);
+        database.failing = true;
+        beforeCrash.flush();
+        beforeCrash.addQuantity(USER, 10, 1, 100);
+
+        database.failing = false;
+        WriteBehindCartStore afterRestart = store(journal, 1_800_000);
+        afterRestart.replayJournal();
+
+        assertEquals(Map.of(10, 3), database.carts.get(USER));
+    }
+
+    @Test
+    void evictsFlushedIdleCartsAndReloadsThemOnNextUse() throws Exception {
+        WriteBehindCartStore store = store(dir.resolve("cart-journal.log"), 1);
+        store.addQuantity(USER, 10, 2, 100);
+
+        // A dirty cart is written first, never dropped unflushed
+        Thread.sleep(5);
+        store.flush();
+        assertTrue(store.isActive(USER));
+        assertEquals(Map.of(10, 2), database.carts.get(USER));
+
+        Thread.sleep(5);
+        store.flush();
+        assertFalse(store.isActive(USER));
+        assertEquals(1L, store.getStats().get("evictions"));
+
+        assertEquals(Map.of(10, 2), store.getQuantities(USER));
+        assertTrue(store.isActive(USER));
+        assertEquals(2L, store.getStats().get("loads"));
+    }
+
+    private WriteBehindCartStore store(Path journal, long idleEvictMs) {
+        return new WriteBehindCartStore(database.repository(), new NoOpTransactionManager(), true,
+                idleEvictMs, journal.toString());
+    }
+
+    /**
+     * Stands in for the carts tables: loads and bulk replaces are all the store uses
+     */
+    private static final class StubCartDatabase {
+        private final Map<Integer, Map<Integer, Integer>> carts = new HashMap<>();
+        private volatile boolean failing;
+
+        CartRepository repository() {
+            return (CartRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{CartRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "findWithItemsByUserId" -> load((Integer) args[0]);
+                        case "replaceCarts" -> replace(cast(args[0]));
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private synchronized Optional<Cart> load(Integer userId) {
+            Map<Integer, Integer> stored = carts.get(userId);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            Cart cart = new Cart();
+            stored.forEach((productId, quantity) -> {
+                Product product = new Product();
+                product.setProductId(productId);
+                cart.getCartItems().add(new CartItem(cart, product, quantity));
+            });
+            return Optional.of(cart);
+        }
+
+        private synchronized int replace(Map<Integer, Map<Integer, Integer>> quantitiesByUserId) {
+            if (failing) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            quantitiesByUserId.forEach((userId, quantities) -> carts.put(userId, new LinkedHashMap<>(quantities)));
+            return quantitiesByUserId.values().stream().mapToInt(Map::size).sum();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<Integer, Map<Integer, Integer>> cast(Object quantities) {
+            return (Map<Integer, Map<Integer, Integer>>) quantities;
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}